@@ -416,6 +416,17 @@ public class CarpetSettings
     )
     public static String commandProfile = "true";
 
+    @Rule(
+            desc = "Keeps the profiler measuring tick sections all the time",
+            extra = {
+                    "/profile health then reports right away, averaging ticks since the previous report",
+                    "and /profile telemetry shows percentiles of section times over the last 5 minutes",
+                    "Measuring a section doesn't allocate, so the overhead is small enough to leave it on"
+            },
+            category = {COMMAND, OPTIMIZATION}
+    )
+    public static boolean continuousProfiling = false;
+
     @Rule(
             desc = "Required permission level for /perf command",
             options = {"2", "4"},
@@ -521,6 +532,66 @@ public class CarpetSettings
     )
     public static boolean scriptsOptimization = true;
 
+    @Rule(
+            desc = "Number of calls after which scarpet functions are recompiled into a faster, specialized form",
+            extra = {
+                    "Requires scriptsOptimization to be enabled.",
+                    "Set to 0 to always use the plain interpreter"
+            },
+            options = {"0", "100", "1000", "10000"},
+            category = {SCARPET, OPTIMIZATION},
+            strict = false,
+            validate = Validators.NonNegativeNumber.class
+    )
+    public static int scriptsCompilationThreshold = 1000;
+
+    @Rule(
+            desc = "Maximum number of scarpet tasks running at the same time in a single task executor",
+            extra = {
+                    "Tasks above the limit wait in a queue until running ones finish.",
+                    "Applies to executors created after the change. Set to 0 for no limit"
+            },
+            options = {"0", "4", "16", "64"},
+            category = SCARPET,
+            strict = false,
+            validate = Validators.NonNegativeNumber.class
+    )
+    public static int scriptsTaskParallelism = 0;
+
+    @Rule(
+            desc = "Maximum number of running and queued scarpet tasks per app",
+            extra = {
+                    "Creating a task above the limit throws an error in the app.",
+                    "Set to 0 for no limit"
+            },
+            options = {"0", "64", "256", "1024"},
+            category = SCARPET,
+            strict = false,
+            validate = Validators.NonNegativeNumber.class
+    )
+    public static int scriptsTaskQuota = 0;
+
+    @Rule(
+            desc = "Reuses results of 'entity_area' calls with the same arguments within a tick",
+            extra = {
+                    "Entities are looked up in chunk sections around the area once, and checked against the area",
+                    "and selector on every call. Sections getting new entities drop results around them.",
+                    "Same entities are represented by the same values during a tick"
+            },
+            category = {SCARPET, OPTIMIZATION}
+    )
+    public static boolean scriptsEntityAreaCaching = false;
+
+    @Rule(
+            desc = "Scarpet file writes return right away and are written to disk in the background",
+            extra = {
+                    "Repeated writes to the same file that didn't make it to disk yet are merged.",
+                    "Write errors are then only logged, and 'write_file' and 'delete_file' always return true"
+            },
+            category = {SCARPET, OPTIMIZATION}
+    )
+    public static boolean scriptsFileWriteBehind = false;
+
     private static class ScarpetAppStore extends Validator<String> {
         @Override
         public String validate(CommandSourceStack source, CarpetRule<String> currentRule, String newValue, String stringInput) {
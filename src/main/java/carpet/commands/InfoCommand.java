@@ -1,12 +1,15 @@
 package carpet.commands;
 
 import carpet.CarpetSettings;
+import carpet.script.utils.RegionScanner;
 import carpet.utils.BlockInfo;
 import carpet.utils.CommandHelper;
 import carpet.utils.Messenger;
 import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -15,7 +18,9 @@ import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.commands.arguments.coordinates.BlockPosArgument;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
+import net.minecraft.world.level.block.state.BlockState;
 
 import static com.mojang.brigadier.arguments.StringArgumentType.getString;
 import static com.mojang.brigadier.arguments.StringArgumentType.greedyString;
@@ -38,7 +43,18 @@ public class InfoCommand
                                                 executes( (c) -> infoBlock(
                                                         c.getSource(),
                                                         BlockPosArgument.getSpawnablePos(c, "block position"),
-                                                        getString(c, "regexp")))))));
+                                                        getString(c, "regexp"))))))).
+                then(literal("region").
+                        then(argument("from", BlockPosArgument.blockPos()).
+                                then(argument("to", BlockPosArgument.blockPos()).
+                                        then(literal("count").
+                                                then(argument("predicate", greedyString()).
+                                                        executes( (c) -> infoRegionCount(
+                                                                c.getSource(),
+                                                                BlockPosArgument.getSpawnablePos(c, "from"),
+                                                                BlockPosArgument.getSpawnablePos(c, "to"),
+                                                                RegionScanner.parsePredicate(commandBuildContext.lookupOrThrow(Registries.BLOCK), new StringReader(getString(c, "predicate"))),
+                                                                getString(c, "predicate"))))))));
 
         dispatcher.register(command);
     }
@@ -66,6 +82,35 @@ public class InfoCommand
         }
     }
 
+    private static int infoRegionCount(CommandSourceStack source, BlockPos from, BlockPos to, Predicate<BlockState> predicate, String predicateString)
+    {
+        if (!source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+        {
+            // same limits as for single blocks, for both corners
+            for (BlockPos corner : List.of(from, to))
+            {
+                if (!source.getLevel().hasChunkAt(corner))
+                {
+                    Messenger.m(source, "r Chunk is not loaded");
+                    return 0;
+                }
+                if (!source.getLevel().isInWorldBounds(corner))
+                {
+                    Messenger.m(source, "r Position is outside of world bounds");
+                    return 0;
+                }
+            }
+        }
+        if (RegionScanner.isTooLarge(from, to))
+        {
+            Messenger.m(source, "r Region is too large, it can have at most " + RegionScanner.MAX_VOLUME + " blocks");
+            return 0;
+        }
+        long count = RegionScanner.countNow(source.getLevel(), from, to, predicate);
+        Messenger.m(source, "w Found ", "wb " + count, "w  blocks matching " + predicateString + " in loaded chunks of the region");
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
     private static int infoBlock(CommandSourceStack source, BlockPos pos, String grep)
     {
         if (!source.hasPermission(Commands.LEVEL_GAMEMASTERS)) {
@@ -3,12 +3,18 @@ package carpet.commands;
 import carpet.CarpetSettings;
 import carpet.utils.CarpetProfiler;
 import carpet.utils.CommandHelper;
+import carpet.utils.Messenger;
+import carpet.utils.TickTelemetry;
 
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import net.minecraft.commands.CommandBuildContext;
 import net.minecraft.commands.CommandSourceStack;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
 import static com.mojang.brigadier.arguments.IntegerArgumentType.getInteger;
 import static com.mojang.brigadier.arguments.IntegerArgumentType.integer;
 import static net.minecraft.commands.Commands.argument;
@@ -28,7 +34,11 @@ public class ProfileCommand
                 then(literal("entities").
                         executes((c) -> healthEntities(c.getSource(), 100)).
                         then(argument("ticks", integer(20,24000)).
-                                executes((c) -> healthEntities(c.getSource(), getInteger(c, "ticks")))));
+                                executes((c) -> healthEntities(c.getSource(), getInteger(c, "ticks"))))).
+                then(literal("telemetry").
+                        executes((c) -> telemetry(c.getSource())).
+                        then(literal("export").
+                                executes((c) -> exportTelemetry(c.getSource()))));
         dispatcher.register(literalargumentbuilder);
     }
 
@@ -43,4 +53,46 @@ public class ProfileCommand
         CarpetProfiler.prepare_entity_report(source, ticks);
         return 1;
     }
+
+    public static int telemetry(CommandSourceStack source)
+    {
+        if (!CarpetSettings.continuousProfiling)
+        {
+            Messenger.m(source, "r Tick telemetry needs continuousProfiling rule to be enabled");
+            return 0;
+        }
+        Map<String, TickTelemetry.Summary> summaries = TickTelemetry.summaries();
+        Messenger.m(source, "w ");
+        Messenger.m(source, "wb Tick times over last %d ticks (p50 / p99 / p99.9 / max):".formatted(TickTelemetry.WINDOW_TICKS));
+        int shown = 0;
+        for (Map.Entry<String, TickTelemetry.Summary> entry : summaries.entrySet())
+        {
+            if (++shown > 15) break;
+            TickTelemetry.Summary summary = entry.getValue();
+            Messenger.m(source, "w  - " + entry.getKey() + ": ", "y %.2f / %.2f / %.2f / %.2fms".formatted(
+                    summary.p50() / 1e6, summary.p99() / 1e6, summary.p999() / 1e6, summary.max() / 1e6
+            ));
+        }
+        return summaries.size();
+    }
+
+    public static int exportTelemetry(CommandSourceStack source)
+    {
+        if (!CarpetSettings.continuousProfiling)
+        {
+            Messenger.m(source, "r Tick telemetry needs continuousProfiling rule to be enabled");
+            return 0;
+        }
+        try
+        {
+            Path file = TickTelemetry.export(source.getServer());
+            Messenger.m(source, "w Tick telemetry exported to " + file);
+            return 1;
+        }
+        catch (IOException e)
+        {
+            Messenger.m(source, "r Failed to export tick telemetry: " + e.getMessage());
+            return 0;
+        }
+    }
 }
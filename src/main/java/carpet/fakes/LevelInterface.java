@@ -1,5 +1,6 @@
 package carpet.fakes;
 
+import carpet.utils.CarpetProfiler;
 import net.minecraft.world.level.redstone.NeighborUpdater;
 import org.jetbrains.annotations.Nullable;
 
@@ -22,4 +23,6 @@ public interface LevelInterface
     List<Entity> getOtherEntitiesLimited(@Nullable Entity except, AABB box, Predicate<? super Entity> predicate, int limit);
 
     NeighborUpdater getNeighborUpdater();
+
+    CarpetProfiler.LevelSections getProfilerSections();
 }
@@ -2,6 +2,9 @@ package carpet.fakes;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+
+import carpet.script.utils.ChunkRegenerationJob;
 import net.minecraft.server.level.ChunkHolder;
 import net.minecraft.world.level.ChunkPos;
 
@@ -9,6 +12,8 @@ public interface ThreadedAnvilChunkStorageInterface
 {
     Map<String, Integer> regenerateChunkRegion(List<ChunkPos> requestedChunks);
 
+    ChunkRegenerationJob scheduleChunkRegeneration(List<ChunkPos> requestedChunks, int sliceSize, Consumer<ChunkRegenerationJob> listener, Object owner);
+
     void relightChunk(ChunkPos pos);
 
     void releaseRelightTicket(ChunkPos pos);
@@ -37,8 +37,8 @@ import carpet.logging.logHelpers.ExplosionLogHelper;
 import carpet.mixins.ExplosionAccessor;
 import carpet.CarpetSettings;
 import carpet.utils.Messenger;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import org.apache.commons.lang3.tuple.MutablePair;
@@ -46,33 +46,53 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import static carpet.script.CarpetEventServer.Event.EXPLOSION_OUTCOME;
 
+/**
+ * Explosions are computed by an engine of the thread they happen on, so explosions in different levels can happen
+ * at the same time. Each engine reuses its scratch structures from one explosion to the next.
+ */
 public class OptimizedExplosion
 {
-    private static List<Entity> entitylist;
-    private static Vec3 vec3dmem;
-    private static long tickmem;
+    private static final ThreadLocal<OptimizedExplosion> engines = ThreadLocal.withInitial(OptimizedExplosion::new);
+    // scratch structures keep their capacity between explosions, unless a big one made them grow past that
+    private static final int SCRATCH_CAPACITY = 4096;
+    private static BlockPos blastChanceLocation;
+
+    private List<Entity> entitylist;
+    private Vec3 vec3dmem;
+    private long tickmem;
     // For disabling the explosion particles and sound
-    public static int explosionSound = 0;
+    private int explosionSound = 0;
 
     // masa's optimizations
-    private static Object2DoubleOpenHashMap<Pair<Vec3, AABB>> densityCache = new Object2DoubleOpenHashMap<>();
-    private static MutablePair<Vec3, AABB> pairMutable = new MutablePair<>();
-    private static Object2ObjectOpenHashMap<BlockPos, BlockState> stateCache = new Object2ObjectOpenHashMap<>();
-    private static Object2ObjectOpenHashMap<BlockPos, FluidState> fluidCache = new Object2ObjectOpenHashMap<>();
-    private static BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos(0, 0, 0);
-    private static ObjectOpenHashSet<BlockPos> affectedBlockPositionsSet = new ObjectOpenHashSet<>();
-    private static boolean firstRay;
-    private static boolean rayCalcDone;
-    private static ArrayList<Float> chances = new ArrayList<>();
-    private static BlockPos blastChanceLocation;
+    private final Object2DoubleOpenHashMap<Pair<Vec3, AABB>> densityCache = new Object2DoubleOpenHashMap<>();
+    private final MutablePair<Vec3, AABB> pairMutable = new MutablePair<>();
+    private final Long2ObjectOpenHashMap<BlockState> stateCache = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<FluidState> fluidCache = new Long2ObjectOpenHashMap<>();
+    private final BlockPos.MutableBlockPos posMutable = new BlockPos.MutableBlockPos(0, 0, 0);
+    private final ObjectOpenHashSet<BlockPos> affectedBlockPositionsSet = new ObjectOpenHashSet<>();
+    private boolean firstRay;
+    private boolean rayCalcDone;
+    private final ArrayList<Float> chances = new ArrayList<>();
 
     // Creating entity list for scarpet event
-    private static List<Entity> entityList = new ArrayList<>();
+    private final List<Entity> entityList = new ArrayList<>();
+    private Explosion entityListExplosion;
+
+    public static void doExplosionA(Explosion e, ExplosionLogHelper eLogger)
+    {
+        engines.get().explosionA(e, eLogger);
+    }
 
-    public static void doExplosionA(Explosion e, ExplosionLogHelper eLogger) {
+    public static void doExplosionB(Explosion e, boolean spawnParticles)
+    {
+        engines.get().explosionB(e, spawnParticles);
+    }
+
+    private void explosionA(Explosion e, ExplosionLogHelper eLogger) {
         ExplosionAccessor eAccess = (ExplosionAccessor) e;
         
         entityList.clear();
+        entityListExplosion = e;
         boolean eventNeeded = EXPLOSION_OUTCOME.isNeeded() && !eAccess.getLevel().isClientSide();
         blastCalc(e);
 
@@ -86,10 +106,13 @@ public class OptimizedExplosion
             getAffectedPositionsOnPlaneZ(e,  0,  1, 14,  1, 14); // north
             getAffectedPositionsOnPlaneZ(e, 15,  1, 14,  1, 14); // south
             stateCache.clear();
+            stateCache.trim(SCRATCH_CAPACITY);
             fluidCache.clear();
+            fluidCache.trim(SCRATCH_CAPACITY);
 
             e.getToBlow().addAll(affectedBlockPositionsSet);
             affectedBlockPositionsSet.clear();
+            affectedBlockPositionsSet.trim(SCRATCH_CAPACITY);
         }
 
         float f3 = eAccess.getRadius() * 2.0F;
@@ -195,9 +218,10 @@ public class OptimizedExplosion
         }
 
         densityCache.clear();
+        densityCache.trim(SCRATCH_CAPACITY);
     }
 
-    public static void doExplosionB(Explosion e, boolean spawnParticles)
+    private void explosionB(Explosion e, boolean spawnParticles)
     {
         ExplosionAccessor eAccess = (ExplosionAccessor) e; 
         Level world = eAccess.getLevel();
@@ -207,7 +231,8 @@ public class OptimizedExplosion
 
         // If it is needed, calls scarpet event
         if (EXPLOSION_OUTCOME.isNeeded() && !world.isClientSide()) {
-            EXPLOSION_OUTCOME.onExplosion((ServerLevel) world, eAccess.getSource(), e::getIndirectSourceEntity,  eAccess.getX(), eAccess.getY(), eAccess.getZ(), eAccess.getRadius(), eAccess.isFire(), e.getToBlow(), entityList, eAccess.getBlockInteraction());
+            List<Entity> affectedEntities = entityListExplosion == e ? entityList : List.of();
+            EXPLOSION_OUTCOME.onExplosion((ServerLevel) world, eAccess.getSource(), e::getIndirectSourceEntity,  eAccess.getX(), eAccess.getY(), eAccess.getZ(), eAccess.getRadius(), eAccess.isFire(), e.getToBlow(), affectedEntities, eAccess.getBlockInteraction());
         }
 
         boolean damagesTerrain = eAccess.getBlockInteraction() != Explosion.BlockInteraction.KEEP;
@@ -318,7 +343,7 @@ public class OptimizedExplosion
         lst.remove(lst.size() - 1);
     }
 
-    private static void rayCalcs(Explosion e) {
+    private void rayCalcs(Explosion e) {
         ExplosionAccessor eAccess = (ExplosionAccessor) e;
         boolean first = true;
 
@@ -375,7 +400,7 @@ public class OptimizedExplosion
         }
     }
 
-    private static void getAffectedPositionsOnPlaneX(Explosion e, int x, int yStart, int yEnd, int zStart, int zEnd)
+    private void getAffectedPositionsOnPlaneX(Explosion e, int x, int yStart, int yEnd, int zStart, int zEnd)
     {
         if (!rayCalcDone)
         {
@@ -398,7 +423,7 @@ public class OptimizedExplosion
         }
     }
 
-    private static void getAffectedPositionsOnPlaneY(Explosion e, int y, int xStart, int xEnd, int zStart, int zEnd)
+    private void getAffectedPositionsOnPlaneY(Explosion e, int y, int xStart, int xEnd, int zStart, int zEnd)
     {
         if (!rayCalcDone)
         {
@@ -421,7 +446,7 @@ public class OptimizedExplosion
         }
     }
 
-    private static void getAffectedPositionsOnPlaneZ(Explosion e, int z, int xStart, int xEnd, int yStart, int yEnd)
+    private void getAffectedPositionsOnPlaneZ(Explosion e, int z, int xStart, int xEnd, int yStart, int yEnd)
     {
         if (!rayCalcDone)
         {
@@ -444,7 +469,7 @@ public class OptimizedExplosion
         }
     }
 
-    private static boolean checkAffectedPosition(Explosion e, double xRel, double yRel, double zRel)
+    private boolean checkAffectedPosition(Explosion e, double xRel, double yRel, double zRel)
     {
         ExplosionAccessor eAccess = (ExplosionAccessor) e;
         double len = Math.sqrt(xRel * xRel + yRel * yRel + zRel * zRel);
@@ -463,17 +488,18 @@ public class OptimizedExplosion
             posMutable.set(posX, posY, posZ);
 
             // Don't query already cached positions again from the world
-            BlockState state = stateCache.get(posMutable);
-            FluidState fluid = fluidCache.get(posMutable);
+            long posLong = posMutable.asLong();
+            BlockState state = stateCache.get(posLong);
+            FluidState fluid = fluidCache.get(posLong);
             BlockPos posImmutable = null;
 
             if (state == null)
             {
                 posImmutable = posMutable.immutable();
                 state = eAccess.getLevel().getBlockState(posImmutable);
-                stateCache.put(posImmutable, state);
+                stateCache.put(posLong, state);
                 fluid = eAccess.getLevel().getFluidState(posImmutable);
-                fluidCache.put(posImmutable, fluid);
+                fluidCache.put(posLong, fluid);
             }
 
             if (!state.isAir())
@@ -513,7 +539,7 @@ public class OptimizedExplosion
         blastChanceLocation = p;
     }
 
-    private static void blastCalc(Explosion e){
+    private void blastCalc(Explosion e){
         ExplosionAccessor eAccess = (ExplosionAccessor) e;
         if(blastChanceLocation == null || blastChanceLocation.distToLowCornerSqr(eAccess.getX(), eAccess.getY(), eAccess.getZ()) > 200) return;
         chances.clear();
@@ -566,7 +592,7 @@ public class OptimizedExplosion
         //showTNTblastChance(e);
     }
 
-    private static void showTNTblastChance(Explosion e){
+    private void showTNTblastChance(Explosion e){
         ExplosionAccessor eAccess = (ExplosionAccessor) e;
         double randMax = 0.6F * eAccess.getRadius();
         double total = 0;
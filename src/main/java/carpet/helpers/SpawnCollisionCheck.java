@@ -0,0 +1,186 @@
+package carpet.helpers;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.util.Mth;
+import net.minecraft.world.level.EmptyBlockGetter;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.FenceGateBlock;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.shapes.Shapes;
+import net.minecraft.world.phys.shapes.VoxelShape;
+
+/**
+ * Collision check of mobs trying to spawn, used with lagFreeSpawning. Noting that most worlds are not made of
+ * trapdoors in various configurations, but solid and 'passable' blocks, like air, water, grass etc., it only looks
+ * at blocks in the bounding box of the mob, and only if one of them has a more complex shape, it defaults to the
+ * full collision check. Each block state is classified once, and blocks are read straight from the chunk section
+ * of the previous block as long as the check stays in it.
+ */
+public class SpawnCollisionCheck
+{
+    private static final byte EMPTY = 0;
+    private static final byte FULL = 1;
+    private static final byte COMPLEX = 2;
+    // shape depends on the position, needs to be checked in the world
+    private static final byte DYNAMIC = 3;
+
+    private static final ThreadLocal<SpawnCollisionCheck> checks = ThreadLocal.withInitial(SpawnCollisionCheck::new);
+
+    private static class Classes
+    {
+        // block states are all registered before any mob spawns
+        private static final byte[] byStateId = classifyAll();
+    }
+
+    private final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+    private ServerLevel level;
+    private LevelChunk chunk;
+    private int chunkX;
+    private int chunkZ;
+    private LevelChunkSection section;
+    private int sectionIndex;
+
+    public static boolean noCollision(ServerLevel level, AABB bb)
+    {
+        SpawnCollisionCheck check = checks.get();
+        check.level = level;
+        try
+        {
+            return check.test(bb);
+        }
+        finally
+        {
+            // not keeping chunks around between spawn attempts
+            check.level = null;
+            check.chunk = null;
+            check.section = null;
+        }
+    }
+
+    private static byte[] classifyAll()
+    {
+        byte[] classes = new byte[Block.BLOCK_STATE_REGISTRY.size()];
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY)
+        {
+            classes[Block.BLOCK_STATE_REGISTRY.getId(state)] = state.getBlock().hasDynamicShape()
+                    ? DYNAMIC
+                    : classify(state.getCollisionShape(EmptyBlockGetter.INSTANCE, BlockPos.ZERO));
+        }
+        return classes;
+    }
+
+    private static byte classify(VoxelShape shape)
+    {
+        if (shape == Shapes.empty())
+        {
+            return EMPTY;
+        }
+        return shape == Shapes.block() ? FULL : COMPLEX;
+    }
+
+    private boolean test(AABB bb)
+    {
+        int minX = Mth.floor(bb.minX);
+        int minY = Mth.floor(bb.minY);
+        int minZ = Mth.floor(bb.minZ);
+        int maxY = Mth.ceil(bb.maxY) - 1;
+        if (bb.getXsize() <= 1) // small mobs
+        {
+            for (int y = minY; y <= maxY; y++)
+            {
+                byte collision = collisionClass(minX, y, minZ);
+                if (collision != EMPTY)
+                {
+                    return collision != FULL && level.noCollision(bb);
+                }
+            }
+            return true;
+        }
+        // this code is only applied for mobs larger than 1 block in footprint
+        int maxX = Mth.ceil(bb.maxX) - 1;
+        int maxZ = Mth.ceil(bb.maxZ) - 1;
+        for (int y = minY; y <= maxY; y++)
+        {
+            for (int x = minX; x <= maxX; x++)
+            {
+                for (int z = minZ; z <= maxZ; z++)
+                {
+                    byte collision = collisionClass(x, y, z);
+                    if (collision != EMPTY)
+                    {
+                        return collision != FULL && level.noCollision(bb);
+                    }
+                }
+            }
+        }
+        int minBelow = minY - 1;
+        // we need to check blocks below for extended hitbox and in that case call
+        // only applies to 'large mobs', slimes, spiders, magmacubes, ghasts, etc.
+        for (int x = minX; x <= maxX; x++)
+        {
+            for (int z = minZ; z <= maxZ; z++)
+            {
+                BlockState state = blockState(x, minBelow, z);
+                if (
+                        state.is(BlockTags.FENCES) ||
+                        state.is(BlockTags.WALLS) ||
+                        ((state.getBlock() instanceof FenceGateBlock) && !state.getValue(FenceGateBlock.OPEN))
+                )
+                {
+                    if (x == minX || x == maxX || z == minZ || z == maxZ)
+                    {
+                        return level.noCollision(bb);
+                    }
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private byte collisionClass(int x, int y, int z)
+    {
+        BlockState state = blockState(x, y, z);
+        byte collision = Classes.byStateId[Block.BLOCK_STATE_REGISTRY.getId(state)];
+        if (collision == DYNAMIC)
+        {
+            return classify(state.getCollisionShape(level, pos.set(x, y, z)));
+        }
+        return collision;
+    }
+
+    private BlockState blockState(int x, int y, int z)
+    {
+        if (level.isOutsideBuildHeight(y))
+        {
+            return Blocks.VOID_AIR.defaultBlockState();
+        }
+        int cx = x >> 4;
+        int cz = z >> 4;
+        if (chunk == null || cx != chunkX || cz != chunkZ)
+        {
+            // only available on the main thread, and for loaded chunks
+            chunk = level.getChunkSource().getChunkNow(cx, cz);
+            chunkX = cx;
+            chunkZ = cz;
+            section = null;
+            if (chunk == null)
+            {
+                return level.getBlockState(pos.set(x, y, z));
+            }
+        }
+        int index = chunk.getSectionIndex(y);
+        if (section == null || index != sectionIndex)
+        {
+            section = chunk.getSection(index);
+            sectionIndex = index;
+        }
+        return section.getBlockState(x & 15, y & 15, z & 15);
+    }
+}
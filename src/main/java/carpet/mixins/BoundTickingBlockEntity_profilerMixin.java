@@ -13,7 +13,7 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 public class BoundTickingBlockEntity_profilerMixin<T extends BlockEntity>
 {
     @Shadow @Final private T blockEntity;
-    CarpetProfiler.ProfilerToken entitySection;
+    int entitySection = -1;
 
     @Inject(method = "tick()V", at = @At("HEAD"))
     private void startTileEntitySection(CallbackInfo ci)
@@ -16,7 +16,7 @@ import net.minecraft.server.level.ServerLevel;
 public class ChunkMap_profilerMixin
 {
     @Shadow @Final ServerLevel level;
-    CarpetProfiler.ProfilerToken currentSection;
+    int currentSection = -1;
 
     @Inject(method = "tick(Ljava/util/function/BooleanSupplier;)V", at = @At("HEAD"))
     private void startProfilerSection(BooleanSupplier booleanSupplier_1, CallbackInfo ci)
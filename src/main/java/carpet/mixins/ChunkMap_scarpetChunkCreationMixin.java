@@ -1,7 +1,6 @@
 package carpet.mixins;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -9,8 +8,11 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 import carpet.fakes.SimpleEntityLookupInterface;
 import carpet.fakes.ServerWorldInterface;
@@ -34,7 +36,6 @@ import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.chunk.status.ChunkStatus;
-import net.minecraft.world.level.chunk.storage.RegionFile;
 import org.apache.commons.lang3.tuple.Pair;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
@@ -42,12 +43,14 @@ import org.spongepowered.asm.mixin.Shadow;
 import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 import carpet.fakes.ChunkHolderInterface;
 import carpet.fakes.ChunkTicketManagerInterface;
 import carpet.fakes.ServerLightingProviderInterface;
 import carpet.fakes.ThreadedAnvilChunkStorageInterface;
+import carpet.script.utils.ChunkRegenerationJob;
 import carpet.script.utils.WorldTools;
 import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
 import it.unimi.dsi.fastutil.longs.LongSet;
@@ -107,6 +110,9 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
 
     //@Shadow protected abstract void postLoadProtoChunk(final ServerLevel serverLevel, final List<CompoundTag> list);
 
+    @Unique
+    private final List<ChunkRegenerationJob> regenerationJobs = new ArrayList<>();
+
     ThreadLocal<Boolean> generated = ThreadLocal.withInitial(() -> null);
 
     // in protoChunkToFullChunk
@@ -200,12 +206,11 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
     @Unique
     private Set<ChunkPos> getExistingChunks(Set<ChunkPos> requestedChunks)
     {
-        Map<String, RegionFile> regionCache = new HashMap<>();
         Set<ChunkPos> ret = new HashSet<>();
 
         for (ChunkPos pos : requestedChunks)
         {
-            if (WorldTools.canHasChunk(this.level, pos, regionCache, true))
+            if (WorldTools.canHasChunk(this.level, pos, true))
             {
                 ret.add(pos);
             }
@@ -285,6 +290,17 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
         this.waitFor(Util.sequenceFailFast(futures));
     }
 
+    /**
+     * @return chunk of a holder that is done loading, or null if it failed to load
+     */
+    @Unique
+    @Nullable
+    private ChunkAccess getLoadedChunk(ChunkPos pos)
+    {
+        CompletableFuture<ChunkAccess> future = this.updatingChunkMap.get(pos.toLong()).getChunkToSave();
+        return future.isCompletedExceptionally() ? null : future.join();
+    }
+
     @Unique
     private ChunkAccess getCurrentChunk(ChunkPos pos)
     {
@@ -301,7 +317,7 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
         this.tickTicketManager();
         if (this.updatingChunkMap.get(pos.toLong()).getLastAvailable() == null) // chunk unloaded
         {
-            if (WorldTools.canHasChunk(this.level, pos, null, true))
+            if (WorldTools.canHasChunk(this.level, pos, true))
             {
                 this.updatingChunkMap.get(pos.toLong()).getOrScheduleFuture(ChunkStatus.EMPTY, (ChunkMap) (Object) this);
             }
@@ -330,35 +346,135 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
     }
 
     @Override
-    public Map<String, Integer> regenerateChunkRegion(List<ChunkPos> requestedChunksList)
+    public Map<String, Integer> regenerateChunkRegion(List<ChunkPos> requestedChunks)
     {
-        Object2IntMap<String> report = new Object2IntOpenHashMap<>();
-        Set<ChunkPos> requestedChunks = new HashSet<>(requestedChunksList);
-
-        // Load requested chunks
-
-        Set<ChunkPos> existingChunks = this.loadExistingChunks(requestedChunks, report);
+        ChunkRegenerationJob job = new ChunkRegenerationJob(requestedChunks, requestedChunks.size(), null);
+        while (!job.isFinished())
+        {
+            this.advanceRegeneration(job);
+            this.waitFor(job.pending);
+        }
+        return job.report();
+    }
 
-        // Finish pending generation stages
-        // This ensures that no generation events will be put back on the main thread after the chunks have been deleted
+    @Override
+    public ChunkRegenerationJob scheduleChunkRegeneration(List<ChunkPos> requestedChunks, int sliceSize, Consumer<ChunkRegenerationJob> listener, Object owner)
+    {
+        ChunkRegenerationJob job = new ChunkRegenerationJob(requestedChunks, sliceSize, listener).register(owner);
+        this.regenerationJobs.add(job);
+        return job;
+    }
 
-        Set<ChunkAccess> affectedChunks = new HashSet<>();
+    @Inject(method = "tick(Ljava/util/function/BooleanSupplier;)V", at = @At("HEAD"))
+    private void onTick(BooleanSupplier haveTime, CallbackInfo ci)
+    {
+        if (this.regenerationJobs.isEmpty())
+        {
+            return;
+        }
+        // listeners may schedule new jobs
+        for (ChunkRegenerationJob job : List.copyOf(this.regenerationJobs))
+        {
+            while (this.advanceRegeneration(job))
+            {
+                // keep going while there is nothing to wait for
+            }
+            if (job.isFinished())
+            {
+                this.regenerationJobs.remove(job);
+            }
+        }
+    }
 
-        for (ChunkPos pos : existingChunks)
+    /**
+     * Moves the job forward if futures it waits for are done
+     *
+     * @return whether it can be moved forward again right away, without doing much work on this tick
+     */
+    @Unique
+    private boolean advanceRegeneration(ChunkRegenerationJob job)
+    {
+        switch (job.phase)
         {
-            affectedChunks.add(this.getCurrentChunk(pos));
+            case PENDING:
+            {
+                Set<ChunkPos> slice = job.nextSlice();
+                if (slice.isEmpty())
+                {
+                    job.finish();
+                    return false;
+                }
+                this.startLoading(job, slice);
+                return true;
+            }
+            case LOADING:
+            {
+                // chunks may have moved on to other statuses since, waiting for them to settle
+                job.ticketed.forEach(this::addTicket);
+                List<CompletableFuture<ChunkAccess>> futures = new ArrayList<>();
+                job.existing.forEach(pos -> futures.add(this.updatingChunkMap.get(pos.toLong()).getChunkToSave()));
+                job.existingNeighbors.forEach(pos -> futures.add(this.updatingChunkMap.get(pos.toLong()).getChunkToSave()));
+                job.pending = futures;
+                if (!job.isReady())
+                {
+                    return false;
+                }
+                this.replaceChunks(job);
+                return false;
+            }
+            case GENERATING:
+            {
+                job.targets.forEach(this::addTicket);
+                while (!job.layers.isEmpty() && job.isReady())
+                {
+                    Entry<ChunkStatus, List<CompletableFuture<?>>> layer = job.layers.removeFirst();
+                    String statusName = BuiltInRegistries.CHUNK_STATUS.getKey(layer.getKey()).getPath();
+                    long now = System.currentTimeMillis();
+                    job.count("layer_time_" + statusName, (int) (now - job.phaseStart));
+                    job.phaseStart = now;
+                    job.pending = job.currentLayer();
+                }
+                if (!job.layers.isEmpty())
+                {
+                    return false;
+                }
+                this.relightNeighbors(job);
+                return false;
+            }
+            case RELIGHTING:
+            {
+                job.targets.forEach(this::addTicket);
+                if (!job.isReady())
+                {
+                    return false;
+                }
+                job.count("relight_time", (int) (System.currentTimeMillis() - job.phaseStart));
+                job.finishSlice();
+                return !job.isFinished();
+            }
+            default:
+                return false;
         }
+    }
+
+    @Unique
+    private void startLoading(ChunkRegenerationJob job, Set<ChunkPos> requestedChunks)
+    {
+        job.slice = requestedChunks;
+
+        // Load requested chunks
 
-        report.put("affected_chunks", affectedChunks.size());
+        Object2IntMap<String> sliceReport = new Object2IntOpenHashMap<>();
+        Set<ChunkPos> existingChunks = this.loadExistingChunks(requestedChunks, sliceReport);
+        sliceReport.forEach(job::count);
 
         // Load neighbors for light removal
+        // Chunks of following slices are not neighbors, they will be regenerated and relit with their own neighbors
 
         Set<ChunkPos> neighbors = new HashSet<>();
 
-        for (ChunkAccess chunk : affectedChunks)
+        for (ChunkPos pos : existingChunks)
         {
-            ChunkPos pos = chunk.getPos();
-
             for (int x = -1; x <= 1; ++x)
             {
                 for (int z = -1; z <= 1; ++z)
@@ -366,7 +482,7 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
                     if (x != 0 || z != 0)
                     {
                         ChunkPos nPos = new ChunkPos(pos.x + x, pos.z + z);
-                        if (!requestedChunks.contains(nPos))
+                        if (!requestedChunks.contains(nPos) && !job.isRemaining(nPos))
                         {
                             neighbors.add(nPos);
                         }
@@ -375,22 +491,48 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
             }
         }
 
-        this.loadExistingChunks(neighbors);
+        job.existing = existingChunks;
+        job.existingNeighbors = this.loadExistingChunks(neighbors);
+        job.ticketed = new HashSet<>(requestedChunks);
+        job.ticketed.addAll(neighbors);
+        job.phase = ChunkRegenerationJob.Phase.LOADING;
+    }
+
+    @Unique
+    private void replaceChunks(ChunkRegenerationJob job)
+    {
+        // Pending generation stages are finished
+        // This ensures that no generation events will be put back on the main thread after the chunks have been deleted
+
+        Set<ChunkAccess> affectedChunks = new HashSet<>();
+
+        for (ChunkPos pos : job.existing)
+        {
+            ChunkAccess chunk = this.getLoadedChunk(pos);
+            if (chunk != null)
+            {
+                affectedChunks.add(chunk);
+            }
+        }
+
+        job.count("affected_chunks", affectedChunks.size());
 
         // Determine affected neighbors
 
         Set<ChunkAccess> affectedNeighbors = new HashSet<>();
 
-        for (ChunkPos pos : neighbors)
+        for (ChunkPos pos : job.existingNeighbors)
         {
-            ChunkAccess chunk = this.getCurrentChunk(pos);
+            ChunkAccess chunk = this.getLoadedChunk(pos);
 
-            if (chunk.getStatus().isOrAfter(ChunkStatus.LIGHT.getParent()))
+            if (chunk != null && chunk.getStatus().isOrAfter(ChunkStatus.LIGHT.getParent()))
             {
                 affectedNeighbors.add(chunk);
             }
         }
 
+        job.affectedNeighbors = affectedNeighbors;
+
         // Unload affected chunks
 
         for (ChunkAccess chunk : affectedChunks)
@@ -446,7 +588,7 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
 
 
         // Force generation to previous states
-        // This ensures that the world is in a consistent state after this method
+        // This ensures that the world is in a consistent state after the slice is done
         // Also, this is needed to ensure chunks are saved to disk
 
         Map<ChunkPos, ChunkStatus> targetGenerationStatus = affectedChunks.stream().collect(
@@ -491,16 +633,22 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
 
             String statusName = BuiltInRegistries.CHUNK_STATUS.getKey(status).getPath();
 
-            report.put("layer_count_" + statusName, futures.size());
-            long start = System.currentTimeMillis();
-
-            this.waitFor(futures);
-
-            report.put("layer_time_" + statusName, (int) (System.currentTimeMillis() - start));
+            job.count("layer_count_" + statusName, futures.size());
+            job.layers.addLast(Map.entry(status, futures));
         }
 
+        job.targets = targetGenerationStatus;
+        job.pending = job.currentLayer();
+        job.phaseStart = System.currentTimeMillis();
+        job.phase = ChunkRegenerationJob.Phase.GENERATING;
+    }
+
+    @Unique
+    private void relightNeighbors(ChunkRegenerationJob job)
+    {
+        Set<ChunkAccess> affectedNeighbors = job.affectedNeighbors;
 
-        report.put("relight_count", affectedNeighbors.size());
+        job.count("relight_count", affectedNeighbors.size());
 
         // Remove light for affected neighbors
 
@@ -538,14 +686,9 @@ public abstract class ChunkMap_scarpetChunkCreationMixin implements ThreadedAnvi
             ));
         }
 
-
-        long relightStart = System.currentTimeMillis();
-
-        this.waitFor(lightFutures);
-
-        report.put("relight_time", (int) (System.currentTimeMillis() - relightStart));
-
-        return report;
+        job.pending = lightFutures;
+        job.phaseStart = System.currentTimeMillis();
+        job.phase = ChunkRegenerationJob.Phase.RELIGHTING;
     }
 
     @Override
@@ -0,0 +1,25 @@
+package carpet.mixins;
+
+import carpet.script.utils.EntityAreaCache;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.entity.EntityAccess;
+import net.minecraft.world.level.entity.EntitySection;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(EntitySection.class)
+public class EntitySection_scarpetMixin<T extends EntityAccess>
+{
+    @Inject(method = "add", at = @At("HEAD"))
+    private void onAdded(T entity, CallbackInfo ci)
+    {
+        // entities are added to the section of their current position
+        if (entity instanceof Entity e && !e.level().isClientSide)
+        {
+            EntityAreaCache.sectionChanged(e.level(), SectionPos.asLong(e.blockPosition()));
+        }
+    }
+}
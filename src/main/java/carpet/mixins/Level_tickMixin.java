@@ -2,6 +2,7 @@ package carpet.mixins;
 
 import carpet.fakes.LevelInterface;
 import carpet.utils.CarpetProfiler;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.minecraft.world.level.redstone.NeighborUpdater;
 import org.spongepowered.asm.mixin.Final;
 import org.spongepowered.asm.mixin.Mixin;
@@ -11,7 +12,6 @@ import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Consumer;
 import net.minecraft.world.entity.Entity;
@@ -23,10 +23,12 @@ public abstract class Level_tickMixin implements LevelInterface
 {
     @Shadow @Final public boolean isClientSide;
     @Shadow @Final protected NeighborUpdater neighborUpdater;
-    CarpetProfiler.ProfilerToken currentSection;
-    CarpetProfiler.ProfilerToken entitySection;
+    int currentSection = -1;
+    int entitySection = -1;
 
-    Map<EntityType<?>, Entity> precookedMobs = new HashMap<>();
+    Map<EntityType<?>, Entity> precookedMobs = new Reference2ObjectOpenHashMap<>();
+    @Unique
+    private CarpetProfiler.LevelSections profilerSections;
 
     @Override
     @Unique
@@ -40,6 +42,17 @@ public abstract class Level_tickMixin implements LevelInterface
         return precookedMobs;
     }
 
+    @Override
+    public CarpetProfiler.LevelSections getProfilerSections()
+    {
+        // dimension is not known yet while the level is being constructed
+        if (profilerSections == null)
+        {
+            profilerSections = new CarpetProfiler.LevelSections((Level) (Object) this);
+        }
+        return profilerSections;
+    }
+
     @Inject(method = "tickBlockEntities", at = @At("HEAD"))
     private void startBlockEntities(CallbackInfo ci) {
         currentSection = CarpetProfiler.start_section((Level) (Object) this, "Block Entities", CarpetProfiler.TYPE.GENERAL);
@@ -27,7 +27,7 @@ public abstract class MinecraftServer_coreMixin
             )
     )
     private void onTick(BooleanSupplier booleanSupplier_1, CallbackInfo ci) {
-        CarpetProfiler.ProfilerToken token = CarpetProfiler.start_section(null, "Carpet", CarpetProfiler.TYPE.GENERAL);
+        int token = CarpetProfiler.start_section(null, "Carpet", CarpetProfiler.TYPE.GENERAL);
         CarpetServer.tick((MinecraftServer) (Object) this);
         CarpetProfiler.end_current_section(token);
     }
@@ -20,7 +20,7 @@ public abstract class MinecraftServer_tickspeedMixin extends ReentrantBlockableE
         super(name);
     }
 
-    CarpetProfiler.ProfilerToken currentSection;
+    int currentSection = -1;
 
     // Replaced the above cancelled while statement with this one
     // could possibly just inject that mspt selection at the beginning of the loop, but then adding all mspt's to
@@ -29,7 +29,7 @@ public abstract class MinecraftServer_tickspeedMixin extends ReentrantBlockableE
             target = "Lnet/minecraft/server/MinecraftServer;startMetricsRecordingTick()V"))
     private void modifiedRunLoop(CallbackInfo ci)
     {
-        if (CarpetProfiler.tick_health_requested != 0L)
+        if (CarpetProfiler.isActive())
         {
             CarpetProfiler.start_tick_profiling();
         }
@@ -88,7 +88,7 @@ public abstract class MinecraftServer_tickspeedMixin extends ReentrantBlockableE
     ))
     private void stopAsync(CallbackInfo ci)
     {
-        if (CarpetProfiler.tick_health_requested != 0L)
+        if (CarpetProfiler.isActive())
         {
             CarpetProfiler.end_current_section(currentSection);
             CarpetProfiler.end_tick_profiling((MinecraftServer) (Object)this);
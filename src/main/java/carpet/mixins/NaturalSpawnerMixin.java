@@ -2,6 +2,7 @@ package carpet.mixins;
 
 import carpet.CarpetSettings;
 import carpet.fakes.LevelInterface;
+import carpet.helpers.SpawnCollisionCheck;
 import carpet.utils.SpawnReporter;
 import org.apache.commons.lang3.tuple.Pair;
 import org.spongepowered.asm.mixin.Final;
@@ -17,8 +18,6 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.tags.BlockTags;
-import net.minecraft.util.Mth;
 import net.minecraft.world.DifficultyInstance;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
@@ -30,14 +29,9 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.NaturalSpawner;
 import net.minecraft.world.level.ServerLevelAccessor;
-import net.minecraft.world.level.block.Block;
-import net.minecraft.world.level.block.FenceGateBlock;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.phys.AABB;
-import net.minecraft.world.phys.shapes.Shapes;
-import net.minecraft.world.phys.shapes.VoxelShape;
 
 @Mixin(NaturalSpawner.class)
 public class NaturalSpawnerMixin
@@ -53,82 +47,13 @@ public class NaturalSpawnerMixin
     ))
     private static boolean doesNotCollide(ServerLevel world, AABB bb)
     {
-        //.doesNotCollide is VERY expensive. On the other side - most worlds are not made of trapdoors in
-        // various configurations, but solid and 'passable' blocks, like air, water grass, etc.
-        // checking if in the BB of the entity are only passable blocks is very cheap and covers most cases
-        // in case something more complex happens - we default to full block collision check
+        //.doesNotCollide is VERY expensive. Checking if in the BB of the entity are only passable blocks is very cheap
+        // and covers most cases
         if (!CarpetSettings.lagFreeSpawning)
         {
             return world.noCollision(bb);
         }
-        int minX = Mth.floor(bb.minX);
-        int minY = Mth.floor(bb.minY);
-        int minZ = Mth.floor(bb.minZ);
-        int maxY = Mth.ceil(bb.maxY)-1;
-        BlockPos.MutableBlockPos blockpos = new BlockPos.MutableBlockPos();
-        if (bb.getXsize() <= 1) // small mobs
-        {
-            for (int y=minY; y <= maxY; y++)
-            {
-                blockpos.set(minX,y,minZ);
-                VoxelShape box = world.getBlockState(blockpos).getCollisionShape(world, blockpos);
-                if (box != Shapes.empty())
-                {
-                    if (box == Shapes.block())
-                    {
-                        return false;
-                    }
-                    else
-                    {
-                        return world.noCollision(bb);
-                    }
-                }
-            }
-            return true;
-        }
-        // this code is only applied for mobs larger than 1 block in footprint
-        int maxX = Mth.ceil(bb.maxX)-1;
-        int maxZ = Mth.ceil(bb.maxZ)-1;
-        for (int y = minY; y <= maxY; y++)
-            for (int x = minX; x <= maxX; x++)
-                for (int z = minZ; z <= maxZ; z++)
-                {
-                    blockpos.set(x, y, z);
-                    VoxelShape box = world.getBlockState(blockpos).getCollisionShape(world, blockpos);
-                    if (box != Shapes.empty())
-                    {
-                        if (box == Shapes.block())
-                        {
-                            return false;
-                        }
-                        else
-                        {
-                            return world.noCollision(bb);
-                        }
-                    }
-                }
-        int min_below = minY - 1;
-        // we need to check blocks below for extended hitbox and in that case call
-        // only applies to 'large mobs', slimes, spiders, magmacubes, ghasts, etc.
-        for (int x = minX; x <= maxX; x++)
-        {
-            for (int z = minZ; z <= maxZ; z++)
-            {
-                blockpos.set(x, min_below, z);
-                BlockState state = world.getBlockState(blockpos);
-                Block block = state.getBlock();
-                if (
-                        state.is(BlockTags.FENCES) ||
-                        state.is(BlockTags.WALLS) ||
-                        ((block instanceof FenceGateBlock) && !state.getValue(FenceGateBlock.OPEN))
-                )
-                {
-                    if (x == minX || x == maxX || z == minZ || z == maxZ) return world.noCollision(bb);
-                    return false;
-                }
-            }
-        }
-        return true;
+        return SpawnCollisionCheck.noCollision(world, bb);
     }
 
     @Redirect(method = "getMobForSpawn", at = @At(
@@ -140,10 +65,11 @@ public class NaturalSpawnerMixin
         if (CarpetSettings.lagFreeSpawning)
         {
             Map<EntityType<?>, Entity> precookedMobs = ((LevelInterface)world_1).getPrecookedMobs();
-            if (precookedMobs.containsKey(entityType))
+            Entity e = precookedMobs.get(entityType);
+            if (e != null)
                 //this mob has been <init>'s but not used yet
-                return precookedMobs.get(entityType);
-            Entity e = entityType.create(world_1);
+                return e;
+            e = entityType.create(world_1);
             precookedMobs.put(entityType, e);
             return e;
         }
@@ -0,0 +1,29 @@
+package carpet.mixins;
+
+import carpet.script.utils.RegionIndex;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.storage.RegionFileStorage;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.nio.file.Path;
+
+@Mixin(RegionFileStorage.class)
+public class RegionFileStorage_scarpetMixin
+{
+    @Shadow
+    @Final
+    private Path folder;
+
+    @Inject(method = "write", at = @At("RETURN"))
+    private void onChunkWritten(ChunkPos pos, CompoundTag tag, CallbackInfo ci)
+    {
+        // null tag removes the chunk from its region
+        RegionIndex.update(folder, pos, tag != null);
+    }
+}
@@ -17,7 +17,7 @@ public abstract class ServerChunkCache_profilerMixin
 
     @Shadow @Final ServerLevel level;
 
-    CarpetProfiler.ProfilerToken currentSection;
+    int currentSection = -1;
 
     @Inject(method = "tickChunks", at = @At("HEAD"))
     private void startSpawningSection(CallbackInfo ci)
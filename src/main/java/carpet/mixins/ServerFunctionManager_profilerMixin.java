@@ -10,7 +10,7 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 @Mixin(ServerFunctionManager.class)
 public class ServerFunctionManager_profilerMixin
 {
-    CarpetProfiler.ProfilerToken currentSection;
+    int currentSection = -1;
 
     @Inject(method = "tick", at = @At("HEAD"), cancellable = true)
     private void beforeDatapacks(CallbackInfo ci)
@@ -26,7 +26,7 @@ public abstract class ServerLevel_tickMixin extends Level implements LevelInterf
         super(writableLevelData, resourceKey, registryAccess, holder, supplier, bl, bl2, l, i);
     }
 
-    private CarpetProfiler.ProfilerToken currentSection;
+    private int currentSection = -1;
 
     @Inject(method = "tick", at = @At(
             value = "CONSTANT",
@@ -6,6 +6,7 @@ import carpet.script.exception.InvalidCallbackException;
 import carpet.script.external.Carpet;
 import carpet.script.external.Vanilla;
 import carpet.script.utils.GlocalFlag;
+import carpet.script.utils.TimingWheel;
 import carpet.script.value.BlockValue;
 import carpet.script.value.BooleanValue;
 import carpet.script.value.EntityValue;
@@ -23,8 +24,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -74,7 +73,7 @@ import javax.annotation.Nullable;
 
 public class CarpetEventServer
 {
-    public final List<ScheduledCall> scheduledCalls = new LinkedList<>();
+    public final TimingWheel<ScheduledCall> scheduledCalls = new TimingWheel<>();
     public final CarpetScriptServer scriptServer;
     private static final List<Value> NOARGS = Collections.emptyList();
     public final Map<String, Event> customEvents = new HashMap<>();
@@ -165,7 +164,10 @@ public class CarpetEventServer
     {
 
         private final CarpetContext ctx;
-        public long dueTime;
+        /**
+         * Tick of the scheduler at which the call will run
+         */
+        public final long dueTime;
 
         public ScheduledCall(CarpetContext context, FunctionValue function, List<Value> args, long dueTime)
         {
@@ -188,6 +190,9 @@ public class CarpetEventServer
     {
 
         private List<Callback> callList;
+        // calls relevant to each target player, in call order, built lazily from callList
+        private Map<String, List<Callback>> targetIndex;
+        private List<Callback> untargetedCalls;
         private final List<Callback> removedCalls;
         private boolean inCall;
         private boolean inSignal;
@@ -211,11 +216,45 @@ public class CarpetEventServer
             return new ArrayList<>(callList);
         }
 
+        private void invalidateIndex()
+        {
+            targetIndex = null;
+            untargetedCalls = null;
+        }
+
+        /**
+         * @return calls that would run for the target player, that is the ones targeting that player and all untargeted calls
+         */
+        private List<Callback> callsFor(String target)
+        {
+            if (targetIndex == null)
+            {
+                Map<String, List<Callback>> index = new HashMap<>();
+                List<Callback> untargeted = new ArrayList<>();
+                for (Callback call : callList)
+                {
+                    if (call.optionalTarget == null)
+                    {
+                        untargeted.add(call);
+                        index.values().forEach(calls -> calls.add(call));
+                    }
+                    else
+                    {
+                        index.computeIfAbsent(call.optionalTarget, t -> new ArrayList<>(untargeted)).add(call);
+                    }
+                }
+                untargetedCalls = untargeted;
+                targetIndex = index;
+            }
+            return targetIndex.getOrDefault(target, untargetedCalls);
+        }
+
         private void removeCallsIf(Predicate<Callback> when)
         {
             if (!inCall && !inSignal)
             {
                 callList.removeIf(when);
+                invalidateIndex();
                 return;
             }
             // we are ok with list growing in the meantime and parallel access, we are only scanning.
@@ -256,26 +295,27 @@ public class CarpetEventServer
             {
                 return false;
             }
+            // supressing calls where target player hosts simply don't match
+            // handling global hosts with player targets is left to when the host is resolved (few calls deeper).
+            List<Callback> calls = perPlayerDistribution ? callsFor(source.getTextName()) : callList;
+            if (calls.isEmpty())
+            {
+                return false;
+            }
             Boolean isCancelled = scriptServer.events.handleEvents.runIfEnabled(() -> {
                 Runnable profilerToken = Carpet.startProfilerSection("Scarpet events");
-                List<Value> argv = argumentSupplier.get(); // empty for onTickDone
-                String nameCheck = perPlayerDistribution ? source.getTextName() : null;
+                List<Value> argv = argumentSupplier.get(); // empty for onTickDone, shared between all calls
                 assert argv.size() == reqArgs;
                 boolean cancelled = false;
                 try
                 {
-                    // we are ok with list growing in the meantime
-                    // which might happen during inCall or inSignal
+                    // the full list may grow in the meantime, which might happen during inCall or inSignal,
+                    // while per player calls come from the index, which is rebuilt rather than changed,
+                    // so handlers added by these calls only run with the next event
                     inCall = true;
-                    for (int i = 0; i < callList.size(); i++)
+                    for (int i = 0; i < calls.size(); i++)
                     {
-                        Callback call = callList.get(i);
-                        // supressing calls where target player hosts simply don't match
-                        // handling global hosts with player targets is left to when the host is resolved (few calls deeper).
-                        if (nameCheck != null && call.optionalTarget != null && !nameCheck.equals(call.optionalTarget))
-                        {
-                            continue;
-                        }
+                        Callback call = calls.get(i);
                         CallbackResult result = call.execute(source, argv);
                         if (result == CallbackResult.CANCEL)
                         {
@@ -292,11 +332,15 @@ public class CarpetEventServer
                 {
                     inCall = false;
                 }
-                for (Callback call : removedCalls)
+                if (!removedCalls.isEmpty())
                 {
-                    callList.remove(call);
+                    for (Callback call : removedCalls)
+                    {
+                        callList.remove(call);
+                    }
+                    removedCalls.clear();
+                    invalidateIndex();
                 }
-                removedCalls.clear();
                 profilerToken.run();
                 return cancelled;
             });
@@ -364,6 +408,7 @@ public class CarpetEventServer
 
             removeEventCall(hostName, target, udf.getString());
             callList.add(new Callback(hostName, target, udf, null, scriptServer));
+            invalidateIndex();
             return true;
         }
 
@@ -376,6 +421,7 @@ public class CarpetEventServer
             //removing duplicates
             removeEventCall(host.getName(), host.user, function.getString());
             callList.add(new Callback(host.getName(), host.user, function, args, (CarpetScriptServer) host.scriptServer()));
+            invalidateIndex();
             return true;
         }
 
@@ -405,6 +451,7 @@ public class CarpetEventServer
                 }
             });
             callList.addAll(copyCalls);
+            invalidateIndex();
         }
 
         public void clearEverything()
@@ -415,11 +462,13 @@ public class CarpetEventServer
                 callList = new ArrayList<>();
             }
             callList.clear();
+            invalidateIndex();
         }
 
         public void sortByPriority(CarpetScriptServer scriptServer)
         {
             callList.sort(Comparator.comparingDouble(c -> -scriptServer.getAppHostByName(c.host).eventPriority));
+            invalidateIndex();
         }
     }
 
@@ -1373,28 +1422,15 @@ public class CarpetEventServer
         {
             return;
         }
-        Iterator<ScheduledCall> eventIterator = scheduledCalls.iterator();
-        List<ScheduledCall> currentCalls = new ArrayList<>();
-        while (eventIterator.hasNext())
-        {
-            ScheduledCall call = eventIterator.next();
-            call.dueTime--;
-            if (call.dueTime <= 0)
-            {
-                currentCalls.add(call);
-                eventIterator.remove();
-            }
-        }
-        for (ScheduledCall call : currentCalls)
+        for (ScheduledCall call : scheduledCalls.advance())
         {
             call.execute();
         }
-
     }
 
     public void scheduleCall(CarpetContext context, FunctionValue function, List<Value> args, long due)
     {
-        scheduledCalls.add(new ScheduledCall(context, function, args, due));
+        scheduledCalls.schedule(new ScheduledCall(context, function, args, scheduledCalls.dueTick(due)), due);
     }
 
     public void runScheduledCall(BlockPos origin, CommandSourceStack source, String hostname, CarpetScriptHost host, FunctionValue udf, List<Value> argv)
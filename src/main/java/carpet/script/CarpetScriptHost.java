@@ -13,12 +13,14 @@ import carpet.script.exception.InvalidCallbackException;
 import carpet.script.exception.LoadException;
 import carpet.script.external.Carpet;
 import carpet.script.external.Vanilla;
+import carpet.script.utils.AppFileIO;
 import carpet.script.utils.AppStoreManager;
 import carpet.script.value.EntityValue;
 import carpet.script.value.FunctionValue;
 import carpet.script.value.ListValue;
 import carpet.script.value.MapValue;
 import carpet.script.value.NumericValue;
+import carpet.script.value.StreamedFileValue;
 import carpet.script.value.StringValue;
 import carpet.script.value.Value;
 
@@ -52,6 +54,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -993,7 +996,7 @@ public class CarpetScriptHost extends ScriptHost
 
         if (fdesc.resource != null)
         {
-            return fdesc.saveNbtData(main, tag);
+            return writeFile(fdesc, AppFileIO.Content.of(tag));
         }
 
         CarpetScriptHost responsibleHost = (parent != null) ? (CarpetScriptHost) parent : this;
@@ -1008,12 +1011,34 @@ public class CarpetScriptHost extends ScriptHost
 
     public boolean removeResourceFile(FileArgument fdesc)
     {
-        return (!isDefaultApp() || fdesc.isShared) && fdesc.dropExistingFile(main); //
+        return writeFile(fdesc, AppFileIO.Content.delete());
     }
 
     public boolean appendLogFile(FileArgument fdesc, List<String> data)
     {
-        return (!isDefaultApp() || fdesc.isShared) && fdesc.appendToTextFile(main, data); // if belongs to an app, cannot be default host.
+        return writeFile(fdesc, AppFileIO.Content.append(data));
+    }
+
+    /**
+     * Writes to the file, or only schedules the write if writes are done in the background
+     */
+    public boolean writeFile(FileArgument fdesc, AppFileIO.Content content)
+    {
+        CompletableFuture<Boolean> write = scheduleFileWrite(fdesc, content);
+        if (!write.isDone() && Vanilla.ScriptServer_fileWriteBehind(scriptServer().server))
+        {
+            return true;
+        }
+        return AppFileIO.join(write);
+    }
+
+    public CompletableFuture<Boolean> scheduleFileWrite(FileArgument fdesc, AppFileIO.Content content)
+    {
+        if (isDefaultApp() && !fdesc.isShared)
+        {
+            return CompletableFuture.completedFuture(false); // if belongs to an app, cannot be default host.
+        }
+        return fdesc.scheduleWrite(main, content);
     }
 
     public List<String> readTextResource(FileArgument fdesc)
@@ -1021,6 +1046,11 @@ public class CarpetScriptHost extends ScriptHost
         return isDefaultApp() && !fdesc.isShared ? null : fdesc.listFile(main);
     }
 
+    public StreamedFileValue streamFile(FileArgument fdesc)
+    {
+        return isDefaultApp() && !fdesc.isShared ? null : fdesc.streamContent(main);
+    }
+
     public JsonElement readJsonFile(FileArgument fdesc)
     {
         return isDefaultApp() && !fdesc.isShared ? null : fdesc.readJsonFile(main);
@@ -1209,6 +1239,18 @@ public class CarpetScriptHost extends ScriptHost
         return false;
     }
 
+    @Override
+    protected int taskParallelism()
+    {
+        return Vanilla.ScriptServer_taskParallelism(scriptServer().server);
+    }
+
+    @Override
+    protected int taskQuota()
+    {
+        return Vanilla.ScriptServer_taskQuota(scriptServer().server);
+    }
+
     @Override
     public boolean canSynchronouslyExecute()
     {
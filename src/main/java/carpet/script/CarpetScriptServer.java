@@ -18,7 +18,13 @@ import carpet.script.language.Functions;
 import carpet.script.language.Loops;
 import carpet.script.language.Sys;
 import carpet.script.language.Threading;
+import carpet.script.utils.AppFileIO;
 import carpet.script.utils.AppStoreManager;
+import carpet.script.utils.ChunkRegenerationJob;
+import carpet.script.utils.EntityAreaCache;
+import carpet.script.utils.ParseCache;
+import carpet.script.utils.RegionIndex;
+import carpet.script.utils.ZipFileSystems;
 import carpet.script.value.FunctionValue;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.tree.CommandNode;
@@ -66,6 +72,7 @@ public class CarpetScriptServer extends ScriptServer
     public int tickDepth;
     private Set<String> holyMoly;
     public CarpetEventServer events;
+    public final EntityAreaCache entityAreaCache = new EntityAreaCache();
 
     private static final List<Module> bundledModuleData = new ArrayList<>();
     private static final List<Module> ruleModuleData = new ArrayList<>();
@@ -406,6 +413,12 @@ public class CarpetScriptServer extends ScriptServer
             return null;
         });
         token.run();
+        token = Carpet.startProfilerSection("Scarpet task batches");
+        for (CarpetScriptHost host : modules.values())
+        {
+            host.applyBatch();
+        }
+        token.run();
         token = Carpet.startProfilerSection("Scarpet app data");
         for (CarpetScriptHost host : modules.values())
         {
@@ -423,6 +436,16 @@ public class CarpetScriptServer extends ScriptServer
             events.removeAllHostEvents(host);
         }
         stopAll = true;
+        entityAreaCache.clear();
+        // parsed blocks and items refer to registries, which may be different after a reload
+        ParseCache.clearAll();
+        // region files may be changed by other means before the world opens again
+        RegionIndex.clear();
+        // chunk regeneration jobs finish the slice they are on, apps won't hear back from them
+        ChunkRegenerationJob.cancelAll();
+        // app data and files written in the background need to make it to disk before the server goes
+        AppFileIO.flush();
+        ZipFileSystems.closeAll();
     }
 
     public void onPlayerJoin(ServerPlayer player)
@@ -77,6 +77,17 @@ public class Context
         return ctx;
     }
 
+    /**
+     * Like {@link #recreate()}, but stores variables in slots resolved at parse time
+     */
+    public Context recreate(Frame.Layout layout)
+    {
+        Context ctx = duplicate();
+        ctx.threadContext = threadContext;
+        ctx.variables = layout.newFrame(ctx);
+        return ctx;
+    }
+
     public void setThreadContext(ThreadValue callingThread)
     {
         this.threadContext = callingThread;
@@ -184,6 +195,13 @@ public class Context
             return null;
         }
 
+        @Override
+        public Context recreate(Frame.Layout layout)
+        {
+            badProgrammer();
+            return null;
+        }
+
         @Override
         protected void initialize()
         {
@@ -37,13 +37,18 @@ import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 
+import javax.annotation.Nullable;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.DoubleToLongFunction;
@@ -535,13 +540,13 @@ public class Expression
 
     public void addMathematicalUnaryIntFunction(String name, DoubleToLongFunction fun)
     {
-        addUnaryFunction(name, (v) -> new NumericValue(fun.applyAsLong(NumericValue.asNumber(v).getDouble())));
+        addUnaryFunction(name, (v) -> NumericValue.of(fun.applyAsLong(NumericValue.asNumber(v).getDouble())));
     }
 
     public void addMathematicalBinaryIntFunction(String name, LongBinaryOperator fun)
     {
         addBinaryFunction(name, (w, v) ->
-                new NumericValue(fun.applyAsLong(NumericValue.asNumber(w).getLong(), NumericValue.asNumber(v).getLong())));
+                NumericValue.of(fun.applyAsLong(NumericValue.asNumber(w).getLong(), NumericValue.asNumber(v).getLong())));
     }
 
     public void addMathematicalBinaryFunction(String name, DoubleBinaryOperator fun)
@@ -661,7 +666,74 @@ public class Expression
 
     public void addContextFunction(String name, int num_params, TriFunction<Context, Context.Type, List<Value>, Value> fun)
     {
-        functions.put(name, new AbstractLazyFunction(num_params, name)
+        functions.put(name, contextFunction(name, num_params, fun));
+    }
+
+    /**
+     * Adds a context function, which calls with some constant arguments can swap for a specialized version when
+     * the code is optimized, like resolving what to do based on a constant name once, rather than on every call.
+     *
+     * @param specializer gets values of constant arguments (nulls for the others) and returns the specialized implementation,
+     *                    or null if the call should stay generic
+     */
+    public void addContextFunction(String name, int num_params, TriFunction<Context, Context.Type, List<Value>, Value> fun,
+                                   Function<List<Value>, TriFunction<Context, Context.Type, List<Value>, Value>> specializer)
+    {
+        ILazyFunction generic = contextFunction(name, num_params, fun);
+        functions.put(name, new SpecializableFunction(generic, constants -> {
+            TriFunction<Context, Context.Type, List<Value>, Value> specialized = specializer.apply(constants);
+            return specialized == null ? null : contextFunction(name, num_params, specialized);
+        }));
+    }
+
+    private record SpecializableFunction(ILazyFunction generic, Function<List<Value>, ILazyFunction> specializer) implements Fluff.ISpecializable
+    {
+        @Override
+        public ILazyFunction specialize(List<Value> constants)
+        {
+            return specializer.apply(constants);
+        }
+
+        @Override
+        public int getNumParams()
+        {
+            return generic.getNumParams();
+        }
+
+        @Override
+        public boolean numParamsVaries()
+        {
+            return generic.numParamsVaries();
+        }
+
+        @Override
+        public LazyValue lazyEval(Context c, Context.Type type, Expression expr, Tokenizer.Token token, List<LazyValue> lazyParams)
+        {
+            return generic.lazyEval(c, type, expr, token, lazyParams);
+        }
+
+        @Override
+        public boolean pure()
+        {
+            return generic.pure();
+        }
+
+        @Override
+        public boolean transitive()
+        {
+            return generic.transitive();
+        }
+
+        @Override
+        public Context.Type staticType(Context.Type outerType)
+        {
+            return generic.staticType(outerType);
+        }
+    }
+
+    private AbstractLazyFunction contextFunction(String name, int num_params, TriFunction<Context, Context.Type, List<Value>, Value> fun)
+    {
+        return new AbstractLazyFunction(num_params, name)
         {
             @Override
             public boolean pure()
@@ -689,7 +761,7 @@ public class Expression
                     throw handleCodeException(c, exc, e, t);
                 }
             }
-        });
+        };
     }
 
     public void addTypedContextFunction(String name, int num_params, Context.Type reqType, TriFunction<Context, Context.Type, List<Value>, Value> fun)
@@ -1061,6 +1133,11 @@ public class Expression
         public List<ExpressionNode> args;
         public Tokenizer.Token token;
         public List<Tokenizer.Token> range;
+        /**
+         * Version of the function specialized for constant arguments of this call, used instead of the function looked up by name
+         */
+        @Nullable
+        public ILazyFunction specialized = null;
         /**
          * The Value representation of the left parenthesis, used for parsing
          * varying numbers of function parameters.
@@ -1248,7 +1325,7 @@ public class Expression
                 }
             }
         }
-        return extractOp(optimizeOnlyContext, root, Context.Type.NONE);
+        return extractOp(optimizeOnlyContext, root, Context.Type.NONE, null);
     }
 
     private int treeSize(ExpressionNode node)
@@ -1399,6 +1476,23 @@ public class Expression
                 optimized = true;
             }
         }
+        if (token == Tokenizer.Token.TokenType.FUNCTION && node.specialized == null && operation instanceof final Fluff.ISpecializable specializable)
+        {
+            List<Value> constants = new ArrayList<>(node.args.size());
+            for (ExpressionNode arg : node.args)
+            {
+                constants.add(arg.op instanceof final LazyValue.Constant constant ? constant.get() : null);
+            }
+            node.specialized = specializable.specialize(constants);
+            if (node.specialized != null)
+            {
+                optimized = true;
+                if (scriptsDebugging)
+                {
+                    CarpetScriptServer.LOG.info(" - " + symbol + " specialized for its constant arguments at line " + (node.token.lineno + 1) + ", node depth " + indent);
+                }
+            }
+        }
 
         for (ExpressionNode arg : node.args)
         {
@@ -1468,7 +1562,10 @@ public class Expression
         return true;
     }
 
-    private LazyValue extractOp(Context ctx, ExpressionNode node, Context.Type expectedType)
+    /**
+     * @param layout frame layout of the function definition the node is in, or null outside of functions
+     */
+    private LazyValue extractOp(Context ctx, ExpressionNode node, Context.Type expectedType, @Nullable Frame.Layout layout)
     {
         if (node.op instanceof LazyValue.Constant)
         {
@@ -1492,24 +1589,32 @@ public class Expression
             {
                 ILazyOperator op = operators.get(token.surface);
                 Context.Type requestedType = op.staticType(expectedType);
-                LazyValue arg = extractOp(ctx, node.args.get(0), requestedType);
+                LazyValue arg = extractOp(ctx, node.args.get(0), requestedType, layout);
                 return (c, t) -> op.lazyEval(c, t, this, token, arg, null).evalValue(c, t);
             }
             case OPERATOR:
             {
                 ILazyOperator op = operators.get(token.surface);
                 Context.Type requestedType = op.staticType(expectedType);
-                LazyValue arg = extractOp(ctx, node.args.get(0), requestedType);
-                LazyValue arh = extractOp(ctx, node.args.get(1), requestedType);
+                LazyValue arg = extractOp(ctx, node.args.get(0), requestedType, layout);
+                if (isFunctionDefinition(node, expectedType))
+                {
+                    // function bodies keep their tree, so they can be recompiled once they get hot
+                    Frame.Layout nestedLayout = frameLayout(node);
+                    LazyValue body = extractOp(ctx, node.args.get(1), requestedType, nestedLayout);
+                    LazyValue arh = new FunctionBody(node, requestedType, nestedLayout, body);
+                    return (c, t) -> op.lazyEval(c, t, this, token, arg, arh).evalValue(c, t);
+                }
+                LazyValue arh = extractOp(ctx, node.args.get(1), requestedType, layout);
                 return (c, t) -> op.lazyEval(c, t, this, token, arg, arh).evalValue(c, t);
             }
             case VARIABLE:
-                return (c, t) -> getOrSetAnyVariable(c, token.surface).evalValue(c, t);
+                return variableAccess(token.surface, layout);
             case FUNCTION:
             {
-                ILazyFunction f = functions.get(token.surface);
+                ILazyFunction f = node.specialized != null ? node.specialized : functions.get(token.surface);
                 Context.Type requestedType = f.staticType(expectedType);
-                List<LazyValue> params = node.args.stream().map(n -> extractOp(ctx, n, requestedType)).collect(Collectors.toList());
+                List<LazyValue> params = node.args.stream().map(n -> extractOp(ctx, n, requestedType, layout)).collect(Collectors.toList());
                 return (c, t) -> f.lazyEval(c, t, this, token, params).evalValue(c, t);
             }
             case CONSTANT:
@@ -1520,6 +1625,230 @@ public class Expression
         }
     }
 
+    private static boolean isFunctionDefinition(ExpressionNode node, Context.Type expectedType)
+    {
+        return expectedType != Context.Type.MAPDEF && node.token.surface.equals("->") && node.args.size() == 2;
+    }
+
+    /**
+     * Assigns frame slots to all arguments, outer variables and locals referenced in a function definition.
+     * Locals of nested function definitions are left for their own frames.
+     */
+    private static Frame.Layout frameLayout(ExpressionNode definition)
+    {
+        Set<String> locals = new LinkedHashSet<>();
+        collectLocals(definition.args.get(0), locals);
+        collectLocals(definition.args.get(1), locals);
+        return new Frame.Layout(locals);
+    }
+
+    private static void collectLocals(ExpressionNode node, Set<String> locals)
+    {
+        if (node.token.type == Tokenizer.Token.TokenType.VARIABLE)
+        {
+            if (!node.token.surface.startsWith("global_"))
+            {
+                locals.add(node.token.surface);
+            }
+            return;
+        }
+        if (node.token.surface.equals("->") && node.args.size() == 2)
+        {
+            return;
+        }
+        for (ExpressionNode arg : node.args)
+        {
+            collectLocals(arg, locals);
+        }
+    }
+
+    /**
+     * Second tier of code extraction, used for function bodies that have been called often enough.
+     * Unlike {@link #extractOp}, it binds eager operators and functions directly to their evaluation,
+     * without creating intermediate lazy values on each call, resolves variable scope once and reads locals
+     * directly from their frame slots. Semantics are the same as the interpreted version, including error reporting.
+     */
+    private LazyValue compileOp(Context ctx, ExpressionNode node, Context.Type expectedType, Frame.Layout layout)
+    {
+        if (node.op instanceof LazyValue.ContextFreeLazyValue)
+        {
+            return extractOp(ctx, node, expectedType, layout);
+        }
+        Tokenizer.Token token = node.token;
+        switch (token.type)
+        {
+            case UNARY_OPERATOR:
+            {
+                ILazyOperator op = operators.get(token.surface);
+                Context.Type requestedType = op.staticType(expectedType);
+                LazyValue arg = compileOp(ctx, node.args.get(0), requestedType, layout);
+                if (op instanceof final AbstractUnaryOperator unary)
+                {
+                    return (c, t) -> {
+                        try
+                        {
+                            return unary.evalUnary(arg.evalValue(c, Context.Type.NONE));
+                        }
+                        catch (RuntimeException exc)
+                        {
+                            throw handleCodeException(c, exc, this, token);
+                        }
+                    };
+                }
+                return (c, t) -> op.lazyEval(c, t, this, token, arg, null).evalValue(c, t);
+            }
+            case OPERATOR:
+            {
+                ILazyOperator op = operators.get(token.surface);
+                Context.Type requestedType = op.staticType(expectedType);
+                LazyValue arg = compileOp(ctx, node.args.get(0), requestedType, layout);
+                if (isFunctionDefinition(node, expectedType))
+                {
+                    Frame.Layout nestedLayout = frameLayout(node);
+                    LazyValue arh = new FunctionBody(node, requestedType, nestedLayout, compileOp(ctx, node.args.get(1), requestedType, nestedLayout));
+                    return (c, t) -> op.lazyEval(c, t, this, token, arg, arh).evalValue(c, t);
+                }
+                LazyValue right = compileOp(ctx, node.args.get(1), requestedType, layout);
+                if (op instanceof final AbstractOperator binary && !(op instanceof AbstractUnaryOperator))
+                {
+                    return (c, t) -> {
+                        try
+                        {
+                            return binary.eval(arg.evalValue(c, Context.Type.NONE), right.evalValue(c, Context.Type.NONE));
+                        }
+                        catch (RuntimeException exc)
+                        {
+                            throw handleCodeException(c, exc, this, token);
+                        }
+                    };
+                }
+                return (c, t) -> op.lazyEval(c, t, this, token, arg, right).evalValue(c, t);
+            }
+            case VARIABLE:
+                return variableAccess(token.surface, layout);
+            case FUNCTION:
+            {
+                ILazyFunction f = node.specialized != null ? node.specialized : functions.get(token.surface);
+                Context.Type requestedType = f.staticType(expectedType);
+                List<LazyValue> params = node.args.stream().map(n -> compileOp(ctx, n, requestedType, layout)).collect(Collectors.toList());
+                if (f instanceof final AbstractFunction eager)
+                {
+                    return (c, t) -> {
+                        ILazyFunction.checkInterrupts();
+                        try
+                        {
+                            return eager.eval(eager.unpackArgs(params, c, Context.Type.NONE));
+                        }
+                        catch (RuntimeException exc)
+                        {
+                            throw handleCodeException(c, exc, this, token);
+                        }
+                    };
+                }
+                return (c, t) -> f.lazyEval(c, t, this, token, params).evalValue(c, t);
+            }
+            default:
+                return extractOp(ctx, node, expectedType, layout);
+        }
+    }
+
+    /**
+     * Reads a variable, with locals resolved to their frame slot once, when the code is extracted
+     *
+     * @param layout frame layout of the function definition the variable is in, or null outside of functions
+     */
+    private LazyValue variableAccess(String name, @Nullable Frame.Layout layout)
+    {
+        if (layout == null || name.startsWith("global_"))
+        {
+            return (c, t) -> getOrSetAnyVariable(c, name).evalValue(c, t);
+        }
+        int slot = layout.slotOf(name);
+        if (slot < 0)
+        {
+            return (c, t) -> {
+                LazyValue local = c.getVariable(name);
+                return (local != null ? local : getOrSetAnyVariable(c, name)).evalValue(c, t);
+            };
+        }
+        return (c, t) -> {
+            // frames can be shared with contexts of other functions, like in in_dimension, so check it is ours
+            LazyValue local = c.variables instanceof final Frame frame && frame.layout() == layout ? frame.getSlot(slot) : c.getVariable(name);
+            return (local != null ? local : getOrSetAnyVariable(c, name)).evalValue(c, t);
+        };
+    }
+
+    /**
+     * Body of a user defined function, together with its frame layout. Starts interpreted and swaps itself for the
+     * output of {@link #compileOp} after being called {@code scriptsCompilationThreshold} times. Shared between all
+     * function values created from the same definition, so lambdas defined in loops get hot as well. Falls back to the
+     * interpreted code when compilation is disabled or the tree cannot be compiled.
+     */
+    public class FunctionBody implements LazyValue
+    {
+        private final ExpressionNode tree;
+        private final Context.Type bodyType;
+        private final Frame.Layout layout;
+        private final LazyValue interpreted;
+        private final AtomicReference<LazyValue> compiled = new AtomicReference<>();
+        // shared by all threads running the function
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicBoolean compiling = new AtomicBoolean();
+
+        private FunctionBody(ExpressionNode definition, Context.Type bodyType, Frame.Layout layout, LazyValue interpreted)
+        {
+            this.tree = definition.args.get(1);
+            this.bodyType = bodyType;
+            this.layout = layout;
+            this.interpreted = interpreted;
+        }
+
+        public Frame.Layout layout()
+        {
+            return layout;
+        }
+
+        @Override
+        public Value evalValue(Context c, Context.Type type)
+        {
+            int threshold = Vanilla.ScriptServer_compilationThreshold(((CarpetScriptServer) c.scriptServer()).server);
+            if (threshold <= 0)
+            {
+                return interpreted.evalValue(c, type);
+            }
+            LazyValue code = compiled.get();
+            if (code == null)
+            {
+                // only one call compiles, others stay interpreted until it's done
+                if (calls.incrementAndGet() < threshold || !compiling.compareAndSet(false, true))
+                {
+                    return interpreted.evalValue(c, type);
+                }
+                code = compile(c);
+                compiled.set(code);
+            }
+            return code.evalValue(c, type);
+        }
+
+        private LazyValue compile(Context c)
+        {
+            try
+            {
+                LazyValue result = compileOp(c, tree, bodyType, layout);
+                if (Vanilla.ScriptServer_scriptDebugging(((CarpetScriptServer) c.scriptServer()).server))
+                {
+                    CarpetScriptServer.LOG.info("Compiled hot function body in " + getModuleName() + " at line " + (tree.token.lineno + 1) + " after " + calls.get() + " calls");
+                }
+                return result;
+            }
+            catch (ExpressionException exc)
+            {
+                CarpetScriptServer.LOG.warn("Failed to compile function body in " + getModuleName() + " at line " + (tree.token.lineno + 1) + ", staying interpreted", exc);
+                return interpreted;
+            }
+        }
+    }
+
     private void validate(Context c, List<Tokenizer.Token> rpn)
     {
         /*-
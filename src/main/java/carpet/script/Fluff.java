@@ -4,8 +4,10 @@ import carpet.script.exception.ExpressionException;
 import carpet.script.exception.InternalExpressionException;
 import carpet.script.value.FunctionUnpackedArgumentsValue;
 import carpet.script.value.ListValue;
+import carpet.script.value.NumericArrayList;
 import carpet.script.value.Value;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -82,6 +84,19 @@ public abstract class Fluff
         // lazy function has a chance to change execution based on context
     }
 
+    /**
+     * Function that can be swapped for a more specific version when some of its arguments are known when the code is parsed
+     */
+    public interface ISpecializable extends ILazyFunction
+    {
+        /**
+         * @param constants values of arguments known at parse time, with nulls for arguments only known at runtime
+         * @return function to use instead for this call, or null if there is nothing to gain
+         */
+        @Nullable
+        ILazyFunction specialize(List<Value> constants);
+    }
+
     public interface IFunction extends ILazyFunction
     {
         Value eval(List<Value> parameters);
@@ -139,7 +154,13 @@ public abstract class Fluff
                 Value arg = lv.evalValue(c, contextType);
                 if (arg instanceof FunctionUnpackedArgumentsValue)
                 {
-                    args.addAll(((ListValue) arg).getItems());
+                    List<Value> items = ((ListValue) arg).getItems();
+                    if (lzargs.size() == 1 && items instanceof NumericArrayList numbers && numbers.isNumeric())
+                    {
+                        // arguments of sum(...list) and the like stay primitive
+                        return numbers.copy();
+                    }
+                    args.addAll(items);
                 }
                 else
                 {
@@ -0,0 +1,255 @@
+package carpet.script;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Local variables of a user function call. Names resolved when the function was parsed live in fixed slots
+ * of an array, so compiled code can access them by index, while names created dynamically, like with {@code var()},
+ * spill over to a regular map. Behaves like any other variable map for the rest of the code.
+ */
+public class Frame extends AbstractMap<String, LazyValue>
+{
+    private final Layout layout;
+    private final LazyValue[] slots;
+    private Map<String, LazyValue> overflow = null;
+
+    private Frame(Layout layout, LazyValue[] slots)
+    {
+        this.layout = layout;
+        this.slots = slots;
+    }
+
+    public Layout layout()
+    {
+        return layout;
+    }
+
+    public LazyValue getSlot(int slot)
+    {
+        return slots[slot];
+    }
+
+    public void setSlot(int slot, LazyValue value)
+    {
+        slots[slot] = value;
+    }
+
+    @Override
+    public LazyValue get(Object key)
+    {
+        int slot = layout.slotOf(key);
+        if (slot >= 0)
+        {
+            return slots[slot];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    @Override
+    public LazyValue put(String key, LazyValue value)
+    {
+        int slot = layout.slotOf(key);
+        if (slot >= 0)
+        {
+            LazyValue previous = slots[slot];
+            slots[slot] = value;
+            return previous;
+        }
+        if (overflow == null)
+        {
+            overflow = new HashMap<>();
+        }
+        return overflow.put(key, value);
+    }
+
+    @Override
+    public LazyValue remove(Object key)
+    {
+        int slot = layout.slotOf(key);
+        if (slot >= 0)
+        {
+            LazyValue previous = slots[slot];
+            slots[slot] = null;
+            return previous;
+        }
+        return overflow == null ? null : overflow.remove(key);
+    }
+
+    @Override
+    public Set<Entry<String, LazyValue>> entrySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<Entry<String, LazyValue>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                int size = overflow == null ? 0 : overflow.size();
+                for (LazyValue slot : slots)
+                {
+                    if (slot != null)
+                    {
+                        size++;
+                    }
+                }
+                return size;
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, LazyValue>>
+    {
+        private int next = -1;
+        private int current = -1;
+        private Iterator<Entry<String, LazyValue>> overflowIterator = null;
+
+        private EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                next++;
+            }
+            while (next < slots.length && slots[next] == null);
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            if (next < slots.length)
+            {
+                return true;
+            }
+            if (overflowIterator == null)
+            {
+                overflowIterator = overflow == null ? Map.<String, LazyValue>of().entrySet().iterator() : overflow.entrySet().iterator();
+            }
+            return overflowIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, LazyValue> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            if (next < slots.length)
+            {
+                current = next;
+                advance();
+                return new SimpleEntry<>(layout.names[current], slots[current]);
+            }
+            current = -1;
+            return overflowIterator.next();
+        }
+
+        @Override
+        public void remove()
+        {
+            if (current >= 0)
+            {
+                slots[current] = null;
+                current = -1;
+            }
+            else if (overflowIterator != null)
+            {
+                overflowIterator.remove();
+            }
+            else
+            {
+                throw new IllegalStateException();
+            }
+        }
+    }
+
+    /**
+     * Slot assignment for locals of a single function, computed once when the function is parsed
+     */
+    public static class Layout
+    {
+        /**
+         * Variables set by {@link Context#initialize()} in every new frame
+         */
+        private static final String[] DEFAULT_NAMES = {"_", "_i", "_a", "_x", "_y", "_z"};
+
+        private final Object2IntOpenHashMap<String> slotIndex;
+        private final String[] names;
+        private volatile Defaults defaults = null;
+
+        private record Defaults(Class<?> owner, LazyValue[] values)
+        {
+        }
+
+        public Layout(Collection<String> locals)
+        {
+            slotIndex = new Object2IntOpenHashMap<>(locals.size() + DEFAULT_NAMES.length);
+            slotIndex.defaultReturnValue(-1);
+            for (String name : DEFAULT_NAMES)
+            {
+                slotIndex.putIfAbsent(name, slotIndex.size());
+            }
+            for (String name : locals)
+            {
+                slotIndex.putIfAbsent(name, slotIndex.size());
+            }
+            names = new String[slotIndex.size()];
+            slotIndex.forEach((name, slot) -> names[slot] = name);
+        }
+
+        public int slotOf(Object name)
+        {
+            return slotIndex.getInt(name);
+        }
+
+        public int size()
+        {
+            return names.length;
+        }
+
+        /**
+         * Creates a new frame for the context, with default variables already in place.
+         * Defaults are captured from the first initialization, so following frames only copy an array.
+         */
+        Frame newFrame(Context ctx)
+        {
+            Defaults cached = defaults;
+            if (cached != null && cached.owner() == ctx.getClass())
+            {
+                return new Frame(this, cached.values().clone());
+            }
+            Frame frame = new Frame(this, new LazyValue[names.length]);
+            ctx.variables = frame;
+            ctx.initialize();
+            if (frame.overflow == null)
+            {
+                defaults = new Defaults(ctx.getClass(), frame.slots.clone());
+            }
+            return frame;
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.Objects;
 import org.apache.commons.io.IOUtils;
 
 import carpet.script.argument.FileArgument;
+import carpet.script.utils.AppFileIO;
 import net.minecraft.nbt.Tag;
 
 public record Module(String name, String code, boolean library)
@@ -90,16 +91,29 @@ public record Module(String name, String code, boolean library)
     public static Tag getData(Module module, ScriptServer scriptServer)
     {
         Path dataFile = resolveResource(module, scriptServer);
-        if (dataFile == null || !Files.exists(dataFile) || !(Files.isRegularFile(dataFile)))
+        if (dataFile == null)
+        {
+            return null;
+        }
+        String key = dataFile.toString();
+        AppFileIO.Content pending = AppFileIO.pending(key);
+        if (pending != null)
+        {
+            return pending.tag() == null ? null : pending.tag().copy();
+        }
+        if (!Files.exists(dataFile) || !(Files.isRegularFile(dataFile)))
         {
             return null;
         }
-        synchronized (FileArgument.writeIOSync)
+        synchronized (AppFileIO.lock(key))
         {
             return FileArgument.readTag(dataFile);
         }
     }
 
+    /**
+     * Schedules saving of the app state on the file writer thread
+     */
     public static void saveData(Module module, Tag globalState, ScriptServer scriptServer)
     {
         Path dataFile = resolveResource(module, scriptServer);
@@ -107,21 +121,24 @@ public record Module(String name, String code, boolean library)
         {
             return;
         }
-        if (!Files.exists(dataFile.getParent()))
-        {
-            try
+        String key = dataFile.toString();
+        AppFileIO.schedule(key, AppFileIO.Content.of(globalState), content -> {
+            if (!Files.exists(dataFile.getParent()))
             {
-                Files.createDirectories(dataFile.getParent());
+                try
+                {
+                    Files.createDirectories(dataFile.getParent());
+                }
+                catch (IOException e)
+                {
+                    throw new IllegalStateException(e);
+                }
             }
-            catch (IOException e)
+            synchronized (AppFileIO.lock(key))
             {
-                throw new IllegalStateException(e);
+                return FileArgument.writeTagDisk(content.tag(), dataFile, false);
             }
-        }
-        synchronized (FileArgument.writeIOSync)
-        {
-            FileArgument.writeTagDisk(globalState, dataFile, false);
-        }
+        });
     }
 
     private static Path resolveResource(Module module, ScriptServer scriptServer)
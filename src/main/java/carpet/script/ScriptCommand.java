@@ -412,6 +412,7 @@ public class ScriptCommand
                 Carpet.Messenger_message(source, "w  - " + c.function.getString() + (c.host == null ? "" : " (from " + c.host + ")"));
             }
         }
+        Carpet.Messenger_message(source, "w Scheduled calls: " + scriptServer.events.scheduledCalls.pending() + " pending, " + scriptServer.events.scheduledCalls.fired() + " fired");
         return 1;
     }
 
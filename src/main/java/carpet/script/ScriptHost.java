@@ -3,6 +3,7 @@ package carpet.script;
 import carpet.script.exception.ExpressionException;
 import carpet.script.exception.IntegrityException;
 import carpet.script.exception.InternalExpressionException;
+import carpet.script.utils.TaskExecutor;
 import carpet.script.value.FunctionValue;
 import carpet.script.value.Value;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
@@ -12,6 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -19,10 +21,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
@@ -32,7 +34,12 @@ public abstract class ScriptHost
     private static final Map<Long, Random> randomizers = new Long2ObjectOpenHashMap<>();
 
     public static Thread mainThread = null;
-    private final Map<Value, ThreadPoolExecutor> executorServices = new HashMap<>();
+    private final Map<Value, TaskExecutor> executorServices = new ConcurrentHashMap<>();
+    private final Object batchLock = new Object();
+    private List<Runnable> batch = new ArrayList<>();
+    private CompletableFuture<Void> batchApplied = new CompletableFuture<>();
+    // batch being run on the main thread right now, if any
+    private CompletableFuture<Void> batchInFlight = CompletableFuture.completedFuture(null);
     private final Map<Value, Object> locks = new ConcurrentHashMap<>();
     private final ScriptServer scriptServer;
     protected boolean inTermination = false;
@@ -82,8 +89,7 @@ public abstract class ScriptHost
             other.globalVariables.forEach((key, value) ->
             {
                 Value var = value.evalValue(null);
-                Value copy = var.deepcopy();
-                copy.boundVariable = var.boundVariable;
+                Value copy = var.deepcopy().bindTo(var.boundVariable);
                 globalVariables.put(key, (c, t) -> copy);
             });
         }
@@ -474,29 +480,131 @@ public abstract class ScriptHost
         return locks.computeIfAbsent(name, n -> new Object());
     }
 
-    public ThreadPoolExecutor getExecutor(Value pool)
+    public TaskExecutor getExecutor(Value pool)
     {
         if (inTermination)
         {
             return null;
         }
-        return executorServices.computeIfAbsent(pool, v -> (ThreadPoolExecutor) Executors.newCachedThreadPool());
+        int quota = taskQuota();
+        if (quota > 0 && taskCount() >= quota)
+        {
+            TaskExecutor executor = executorServices.get(pool);
+            if (executor != null)
+            {
+                executor.reject();
+            }
+            throw new InternalExpressionException("App reached its limit of " + quota + " running and queued tasks");
+        }
+        return executorServices.computeIfAbsent(pool, v -> new TaskExecutor("scarpet-" + getVisualName() + "-", taskParallelism()));
+    }
+
+    /**
+     * @return maximum number of tasks running at the same time in a single executor, 0 for no limit
+     */
+    protected int taskParallelism()
+    {
+        return 0;
+    }
+
+    /**
+     * @return maximum number of running and queued tasks across all executors of this host, 0 for no limit
+     */
+    protected int taskQuota()
+    {
+        return 0;
     }
 
     public int taskCount()
     {
-        return executorServices.values().stream().map(ThreadPoolExecutor::getActiveCount).reduce(0, Integer::sum);
+        return executorServices.values().stream().mapToInt(TaskExecutor::taskCount).sum();
     }
 
     public int taskCount(Value pool)
     {
-        return executorServices.containsKey(pool) ? executorServices.get(pool).getActiveCount() : 0;
+        TaskExecutor executor = executorServices.get(pool);
+        return executor == null ? 0 : executor.taskCount();
+    }
+
+    public Map<Value, TaskExecutor> executors()
+    {
+        return executorServices;
+    }
+
+    /**
+     * Adds an action to be run on the main thread with the next batch of this host
+     *
+     * @return future completed once the batch containing the action has been applied
+     */
+    public CompletableFuture<Void> addToBatch(Runnable action)
+    {
+        synchronized (batchLock)
+        {
+            if (inTermination)
+            {
+                return CompletableFuture.completedFuture(null);
+            }
+            batch.add(action);
+            return batchApplied;
+        }
+    }
+
+    /**
+     * @return future completed once all actions batched so far have been applied
+     */
+    public CompletableFuture<Void> batchBarrier()
+    {
+        synchronized (batchLock)
+        {
+            return batch.isEmpty() ? batchInFlight : batchApplied;
+        }
+    }
+
+    /**
+     * Runs all batched actions of this host and its user hosts. Has to be called from the main thread
+     */
+    public void applyBatch()
+    {
+        List<Runnable> actions;
+        CompletableFuture<Void> applied;
+        synchronized (batchLock)
+        {
+            actions = batch;
+            applied = batchApplied;
+            if (!actions.isEmpty())
+            {
+                batch = new ArrayList<>();
+                batchApplied = new CompletableFuture<>();
+                batchInFlight = applied;
+            }
+        }
+        if (!actions.isEmpty())
+        {
+            try
+            {
+                actions.forEach(Runnable::run);
+            }
+            finally
+            {
+                applied.complete(null);
+            }
+        }
+        for (ScriptHost uh : userHosts.values())
+        {
+            uh.applyBatch();
+        }
     }
 
     public void onClose()
     {
         inTermination = true;
-        executorServices.values().forEach(ThreadPoolExecutor::shutdown);
+        executorServices.values().forEach(TaskExecutor::shutdown);
+        synchronized (batchLock)
+        {
+            // batched actions are dropped, so tasks waiting on them can finish
+            batch = new ArrayList<>();
+            batchApplied.complete(null);
+        }
         for (ScriptHost uh : userHosts.values())
         {
             uh.onClose();
@@ -1,6 +1,7 @@
 package carpet.script.api;
 
 import carpet.script.external.Vanilla;
+import carpet.script.utils.AppFileIO;
 import carpet.script.utils.FeatureGenerator;
 import carpet.script.argument.FileArgument;
 import carpet.script.CarpetContext;
@@ -30,6 +31,7 @@ import carpet.script.value.MapValue;
 import carpet.script.value.NBTSerializableValue;
 import carpet.script.value.NumericValue;
 import carpet.script.value.StringValue;
+import carpet.script.value.ThreadValue;
 import carpet.script.value.Value;
 import carpet.script.value.ValueConversions;
 import com.google.common.collect.Lists;
@@ -936,9 +938,18 @@ public class Auxiliary
             return files == null ? Value.NULL : ListValue.wrap(files.map(StringValue::of));
         });
 
-        expression.addContextFunction("read_file", 2, (c, t, lv) ->
+        expression.addContextFunction("read_file", -1, (c, t, lv) ->
         {
+            if (lv.size() > 3)
+            {
+                throw new InternalExpressionException("'read_file' takes resource, type, and optional streaming flag");
+            }
             FileArgument fdesc = FileArgument.from(c, lv, false, FileArgument.Reason.READ);
+            if (lv.size() > 2 && lv.get(2).getBoolean() && fdesc.type != FileArgument.Type.NBT)
+            {
+                Value content = ((CarpetScriptHost) c.host).streamFile(fdesc);
+                return content == null ? Value.NULL : content;
+            }
             if (fdesc.type == FileArgument.Type.NBT)
             {
                 Tag state = ((CarpetScriptHost) c.host).readFileTag(fdesc);
@@ -967,49 +978,16 @@ public class Auxiliary
                 throw new InternalExpressionException("'write_file' requires three or more arguments");
             }
             FileArgument fdesc = FileArgument.from(c, lv, false, FileArgument.Reason.CREATE);
+            return BooleanValue.of(((CarpetScriptHost) c.host).writeFile(fdesc, fileContent(fdesc, lv)));
+        });
 
-            boolean success;
-            if (fdesc.type == FileArgument.Type.NBT)
-            {
-                Value val = lv.get(2);
-                NBTSerializableValue tagValue = (val instanceof final NBTSerializableValue nbtsv)
-                        ? nbtsv
-                        : new NBTSerializableValue(val.getString());
-                Tag tag = tagValue.getTag();
-                success = ((CarpetScriptHost) c.host).writeTagFile(tag, fdesc);
-            }
-            else if (fdesc.type == FileArgument.Type.JSON)
-            {
-                List<String> data = Collections.singletonList(GSON.toJson(lv.get(2).toJson()));
-                ((CarpetScriptHost) c.host).removeResourceFile(fdesc);
-                success = ((CarpetScriptHost) c.host).appendLogFile(fdesc, data);
-            }
-            else
+        expression.addContextFunction("write_file_async", -1, (c, t, lv) -> {
+            if (lv.size() < 3)
             {
-                List<String> data = new ArrayList<>();
-                if (lv.size() == 3)
-                {
-                    Value val = lv.get(2);
-                    if (val instanceof final ListValue list)
-                    {
-                        List<Value> lval = list.getItems();
-                        lval.forEach(v -> data.add(v.getString()));
-                    }
-                    else
-                    {
-                        data.add(val.getString());
-                    }
-                }
-                else
-                {
-                    for (int i = 2; i < lv.size(); i++)
-                    {
-                        data.add(lv.get(i).getString());
-                    }
-                }
-                success = ((CarpetScriptHost) c.host).appendLogFile(fdesc, data);
+                throw new InternalExpressionException("'write_file_async' requires three or more arguments");
             }
-            return BooleanValue.of(success);
+            FileArgument fdesc = FileArgument.from(c, lv, false, FileArgument.Reason.CREATE);
+            return new ThreadValue(((CarpetScriptHost) c.host).scheduleFileWrite(fdesc, fileContent(fdesc, lv)).<Value>handle((success, e) -> BooleanValue.of(e == null && success)));
         });
 
         expression.addContextFunction("load_app_data", -1, (c, t, lv) ->
@@ -1236,6 +1214,44 @@ public class Auxiliary
         });
     }
 
+    private static AppFileIO.Content fileContent(FileArgument fdesc, List<Value> lv)
+    {
+        if (fdesc.type == FileArgument.Type.NBT)
+        {
+            Value val = lv.get(2);
+            NBTSerializableValue tagValue = (val instanceof final NBTSerializableValue nbtsv)
+                    ? nbtsv
+                    : new NBTSerializableValue(val.getString());
+            return AppFileIO.Content.of(tagValue.getTag());
+        }
+        if (fdesc.type == FileArgument.Type.JSON)
+        {
+            return AppFileIO.Content.text(Collections.singletonList(GSON.toJson(lv.get(2).toJson())));
+        }
+        List<String> data = new ArrayList<>();
+        if (lv.size() == 3)
+        {
+            Value val = lv.get(2);
+            if (val instanceof final ListValue list)
+            {
+                List<Value> lval = list.getItems();
+                lval.forEach(v -> data.add(v.getString()));
+            }
+            else
+            {
+                data.add(val.getString());
+            }
+        }
+        else
+        {
+            for (int i = 2; i < lv.size(); i++)
+            {
+                data.add(lv.get(i).getString());
+            }
+        }
+        return AppFileIO.Content.append(data);
+    }
+
     private static void zipValueToJson(Path path, Value output) throws IOException
     {
         JsonElement element = output.toJson();
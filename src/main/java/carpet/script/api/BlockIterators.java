@@ -10,20 +10,26 @@ import carpet.script.argument.Vector3Argument;
 import carpet.script.exception.BreakStatement;
 import carpet.script.exception.ContinueStatement;
 import carpet.script.exception.InternalExpressionException;
+import carpet.script.utils.BlockCursor;
+import carpet.script.utils.RegionScanner;
 import carpet.script.value.BlockValue;
 import carpet.script.value.LazyListValue;
 import carpet.script.value.ListValue;
 import carpet.script.value.NumericValue;
+import carpet.script.value.ThreadValue;
 import carpet.script.value.Value;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Predicate;
 
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Vec3i;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.Mth;
+import net.minecraft.world.level.block.state.BlockState;
 
 import static java.lang.Math.abs;
 import static java.lang.Math.max;
@@ -99,55 +105,7 @@ public class BlockIterators
             int yprange = upperRange.getY();
             int zprange = upperRange.getZ();
 
-            //saving outer scope
-            LazyValue xVal = c.getVariable("_x");
-            LazyValue yVal = c.getVariable("_y");
-            LazyValue zVal = c.getVariable("_z");
-            LazyValue defaultVal = c.getVariable("_");
-            int sCount = 0;
-            outer:
-            for (int y = cy - yrange; y <= cy + yprange; y++)
-            {
-                int yFinal = y;
-                c.setVariable("_y", (ct, tt) -> new NumericValue(yFinal).bindTo("_y"));
-                for (int x = cx - xrange; x <= cx + xprange; x++)
-                {
-                    int xFinal = x;
-                    c.setVariable("_x", (ct, tt) -> new NumericValue(xFinal).bindTo("_x"));
-                    for (int z = cz - zrange; z <= cz + zprange; z++)
-                    {
-                        int zFinal = z;
-
-                        c.setVariable("_z", (ct, tt) -> new NumericValue(zFinal).bindTo("_z"));
-                        Value blockValue = BlockValue.fromCoords(((CarpetContext) c), xFinal, yFinal, zFinal).bindTo("_");
-                        c.setVariable("_", (ct, tt) -> blockValue);
-                        Value result;
-                        try
-                        {
-                            result = expr.evalValue(c, t);
-                        }
-                        catch (ContinueStatement notIgnored)
-                        {
-                            result = notIgnored.retval;
-                        }
-                        catch (BreakStatement notIgnored)
-                        {
-                            break outer;
-                        }
-                        if (t != Context.VOID && result.getBoolean())
-                        {
-                            sCount += 1;
-                        }
-                    }
-                }
-            }
-            //restoring outer scope
-            c.setVariable("_x", xVal);
-            c.setVariable("_y", yVal);
-            c.setVariable("_z", zVal);
-            c.setVariable("_", defaultVal);
-            int finalSCount = sCount;
-            return (ct, tt) -> new NumericValue(finalSCount);
+            return iterate(cc, t, expr, cx - xrange, cy - yrange, cz - zrange, cx + xprange, cy + yprange, cz + zprange);
         });
 
         // must be lazy
@@ -179,54 +137,74 @@ public class BlockIterators
             int maxz = max(z1, z2);
             LazyValue expr = llv.get(pos2Locator.offset);
 
-            //saving outer scope
-            LazyValue xVal = c.getVariable("_x");
-            LazyValue yVal = c.getVariable("_y");
-            LazyValue zVal = c.getVariable("_z");
-            LazyValue defaultVal = c.getVariable("_");
-            int sCount = 0;
-            outer:
-            for (int y = miny; y <= maxy; y++)
+            return iterate(cc, t, expr, minx, miny, minz, maxx, maxy, maxz);
+        });
+
+        expression.addContextFunction("region_scan", -1, (c, t, lv) ->
+        {
+            CarpetContext cc = (CarpetContext) c;
+            if (lv.size() < 3)
             {
-                int yFinal = y;
-                c.setVariable("_y", (ct, tt) -> new NumericValue(yFinal).bindTo("_y"));
-                for (int x = minx; x <= maxx; x++)
-                {
-                    int xFinal = x;
-                    c.setVariable("_x", (ct, tt) -> new NumericValue(xFinal).bindTo("_x"));
-                    for (int z = minz; z <= maxz; z++)
-                    {
-                        int zFinal = z;
-                        c.setVariable("_z", (ct, tt) -> new NumericValue(zFinal).bindTo("_z"));
-                        Value blockValue = BlockValue.fromCoords(((CarpetContext) c), xFinal, yFinal, zFinal).bindTo("_");
-                        c.setVariable("_", (ct, tt) -> blockValue);
-                        Value result;
-                        try
-                        {
-                            result = expr.evalValue(c, t);
-                        }
-                        catch (ContinueStatement notIgnored)
-                        {
-                            result = notIgnored.retval;
-                        }
-                        catch (BreakStatement notIgnored)
-                        {
-                            break outer;
-                        }
-                        if (t != Context.VOID && result.getBoolean())
-                        {
-                            sCount += 1;
-                        }
-                    }
-                }
+                throw new InternalExpressionException("'region_scan' requires two positions and a block predicate");
+            }
+            BlockArgument pos1Locator = BlockArgument.findIn(cc, lv, 0);
+            BlockArgument pos2Locator = BlockArgument.findIn(cc, lv, pos1Locator.offset);
+            int offset = pos2Locator.offset;
+            if (lv.size() <= offset)
+            {
+                throw new InternalExpressionException("'region_scan' requires a block predicate");
             }
-            //restoring outer scope
-            c.setVariable("_x", xVal);
-            c.setVariable("_y", yVal);
-            c.setVariable("_z", zVal);
-            c.setVariable("_", defaultVal);
-            int finalSCount = sCount;
-            return (ct, tt) -> new NumericValue(finalSCount);
+            ServerLevel level = cc.level();
+            Predicate<BlockState> predicate = RegionScanner.parsePredicate(level, lv.get(offset).getString());
+            RegionScanner.Reduction reduction = lv.size() > offset + 1
+                    ? RegionScanner.Reduction.fromString(lv.get(offset + 1).getString())
+                    : RegionScanner.Reduction.COUNT;
+            BlockPos from = pos1Locator.block.getPos();
+            BlockPos to = pos2Locator.block.getPos();
+            if (RegionScanner.isTooLarge(from, to))
+            {
+                throw new InternalExpressionException("'region_scan' region can have at most " + RegionScanner.MAX_VOLUME + " blocks");
+            }
+            MinecraftServer server = cc.server();
+            RegionScanner scanner;
+            if (server.isSameThread())
+            {
+                scanner = RegionScanner.snapshot(level, from, to, predicate);
+            }
+            else
+            {
+                // sections can only be copied safely on the main thread
+                scanner = server.submit(() -> RegionScanner.snapshot(level, from, to, predicate)).join();
+            }
+            return new ThreadValue(scanner.reduce(reduction));
+        });
+
+        expression.addContextFunction("block_count", -1, (c, t, lv) ->
+        {
+            CarpetContext cc = (CarpetContext) c;
+            if (lv.size() < 3)
+            {
+                throw new InternalExpressionException("'block_count' requires two positions and a block predicate");
+            }
+            BlockArgument pos1Locator = BlockArgument.findIn(cc, lv, 0);
+            BlockArgument pos2Locator = BlockArgument.findIn(cc, lv, pos1Locator.offset);
+            if (lv.size() <= pos2Locator.offset)
+            {
+                throw new InternalExpressionException("'block_count' requires a block predicate");
+            }
+            ServerLevel level = cc.level();
+            Predicate<BlockState> predicate = RegionScanner.parsePredicate(level, lv.get(pos2Locator.offset).getString());
+            BlockPos from = pos1Locator.block.getPos();
+            BlockPos to = pos2Locator.block.getPos();
+            if (RegionScanner.isTooLarge(from, to))
+            {
+                throw new InternalExpressionException("'block_count' region can have at most " + RegionScanner.MAX_VOLUME + " blocks");
+            }
+            MinecraftServer server = cc.server();
+            long count = server.isSameThread()
+                    ? RegionScanner.countNow(level, from, to, predicate)
+                    : server.submit(() -> RegionScanner.countNow(level, from, to, predicate)).join();
+            return new NumericValue(count);
         });
 
         expression.addContextFunction("neighbours", -1, (c, t, lv) ->
@@ -542,4 +520,65 @@ public class BlockIterators
             }
         });
     }
+
+    /**
+     * Evaluates the expression for every block in the box, in y, x, z order, with {@code _} and {@code _x},
+     * {@code _y}, {@code _z} set to the current block and its coordinates.
+     * Same variable holders are reused through the entire iteration, and block values are only created when accessed.
+     *
+     * @return number of positions the expression was true for
+     */
+    private static LazyValue iterate(CarpetContext c, Context.Type t, LazyValue expr, int minx, int miny, int minz, int maxx, int maxy, int maxz)
+    {
+        BlockCursor cursor = new BlockCursor(c.level(), c.origin());
+        LazyValue xHolder = (ct, tt) -> new NumericValue(cursor.x()).bindTo("_x");
+        LazyValue yHolder = (ct, tt) -> new NumericValue(cursor.y()).bindTo("_y");
+        LazyValue zHolder = (ct, tt) -> new NumericValue(cursor.z()).bindTo("_z");
+        LazyValue blockHolder = (ct, tt) -> cursor.blockValue().bindTo("_");
+        //saving outer scope
+        LazyValue xVal = c.getVariable("_x");
+        LazyValue yVal = c.getVariable("_y");
+        LazyValue zVal = c.getVariable("_z");
+        LazyValue defaultVal = c.getVariable("_");
+        int sCount = 0;
+        outer:
+        for (int y = miny; y <= maxy; y++)
+        {
+            c.setVariable("_y", yHolder);
+            for (int x = minx; x <= maxx; x++)
+            {
+                c.setVariable("_x", xHolder);
+                for (int z = minz; z <= maxz; z++)
+                {
+                    cursor.set(x, y, z);
+                    c.setVariable("_z", zHolder);
+                    c.setVariable("_", blockHolder);
+                    Value result;
+                    try
+                    {
+                        result = expr.evalValue(c, t);
+                    }
+                    catch (ContinueStatement notIgnored)
+                    {
+                        result = notIgnored.retval;
+                    }
+                    catch (BreakStatement notIgnored)
+                    {
+                        break outer;
+                    }
+                    if (t != Context.VOID && result.getBoolean())
+                    {
+                        sCount += 1;
+                    }
+                }
+            }
+        }
+        //restoring outer scope
+        c.setVariable("_x", xVal);
+        c.setVariable("_y", yVal);
+        c.setVariable("_z", zVal);
+        c.setVariable("_", defaultVal);
+        int finalSCount = sCount;
+        return (ct, tt) -> new NumericValue(finalSCount);
+    }
 }
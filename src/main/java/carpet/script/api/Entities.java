@@ -3,19 +3,23 @@ package carpet.script.api;
 import carpet.script.CarpetContext;
 import carpet.script.CarpetEventServer;
 import carpet.script.CarpetScriptHost;
+import carpet.script.CarpetScriptServer;
 import carpet.script.Context;
 import carpet.script.Expression;
 import carpet.script.argument.FunctionArgument;
 import carpet.script.argument.Vector3Argument;
 import carpet.script.exception.InternalExpressionException;
+import carpet.script.external.Vanilla;
 import carpet.script.value.EntityValue;
 import carpet.script.value.ListValue;
 import carpet.script.value.NBTSerializableValue;
 import carpet.script.value.NumericValue;
+import carpet.script.value.StringValue;
 import carpet.script.value.Value;
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -23,6 +27,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
 import net.minecraft.commands.CommandSourceStack;
@@ -213,6 +219,12 @@ public class Entities
             Vec3 range = rangeLocator.vec;
             AABB area = centerBox.inflate(range.x, range.y, range.z);
             EntityValue.EntityClassDescriptor eDesc = EntityValue.getEntityDescriptor(who, cc.server());
+            if (Vanilla.ScriptServer_entityAreaCaching(cc.server()))
+            {
+                CarpetScriptServer scriptServer = (CarpetScriptServer) c.host.scriptServer();
+                return ListValue.wrap(scriptServer.entityAreaCache.getEntities(cc.level(), who, area, eDesc.filteringPredicate,
+                        sections -> cc.level().getEntities(eDesc.directType, sections, e -> true)));
+            }
             List<? extends Entity> entityList = cc.level().getEntities(eDesc.directType, area, eDesc.filteringPredicate);
             return ListValue.wrap(entityList.stream().map(EntityValue::new));
         });
@@ -228,50 +240,37 @@ public class Entities
             return ListValue.wrap(retlist);
         });
 
-        expression.addContextFunction("query", -1, (c, t, lv) ->
+        expression.addContextFunction("query", -1, (c, t, lv) -> query(c, lv, null), constants ->
         {
-            if (lv.size() < 2)
-            {
-                throw new InternalExpressionException("'query' takes entity as a first argument, and queried feature as a second");
-            }
-            Value v = lv.get(0);
-            if (!(v instanceof final EntityValue ev))
+            // query(e, 'feature', ...) resolves the feature once, when the code is optimized
+            if (constants.size() < 2 || !(constants.get(1) instanceof final StringValue feature))
             {
-                throw new InternalExpressionException("First argument to query should be an entity");
+                return null;
             }
-            String what = lv.get(1).getString().toLowerCase(Locale.ROOT);
-            if (what.equals("tags"))
+            String what = feature.getString().toLowerCase(Locale.ROOT);
+            BiFunction<Entity, Value, Value> accessor = EntityValue.getAccessor(what);
+            if (accessor == null || what.equals("tags"))
             {
-                c.host.issueDeprecation("'tags' for entity querying");
+                return null;
             }
-            return switch (lv.size())
-                    {
-                        case 2 -> ev.get(what, null);
-                        case 3 -> ev.get(what, lv.get(2));
-                        default -> ev.get(what, ListValue.wrap(lv.subList(2, lv.size())));
-                    };
+            List<Feature> resolved = List.of(new Feature(what, accessor));
+            // arguments could shift at runtime due to unpacking, so the constant has to be in its place
+            return (c, t, lv) -> query(c, lv, lv.size() >= 2 && lv.get(1) == feature ? resolved : null);
         });
 
         // or update
-        expression.addContextFunction("modify", -1, (c, t, lv) ->
+        expression.addContextFunction("modify", -1, (c, t, lv) -> modify(lv, null), constants ->
         {
-            if (lv.size() < 2)
-            {
-                throw new InternalExpressionException("'modify' takes entity as a first argument, and queried feature as a second");
-            }
-            Value v = lv.get(0);
-            if (!(v instanceof final EntityValue ev))
+            if (constants.size() < 2 || !(constants.get(1) instanceof final StringValue feature))
             {
-                throw new InternalExpressionException("First argument to modify should be an entity");
+                return null;
             }
-            String what = lv.get(1).getString();
-            switch (lv.size())
+            BiConsumer<Entity, Value> modifier = EntityValue.getModifier(feature.getString());
+            if (modifier == null)
             {
-                case 2 -> ev.set(what, null);
-                case 3 -> ev.set(what, lv.get(2));
-                default -> ev.set(what, ListValue.wrap(lv.subList(2, lv.size())));
+                return null;
             }
-            return v;
+            return (c, t, lv) -> modify(lv, lv.size() >= 2 && lv.get(1) == feature ? modifier : null);
         });
 
         expression.addContextFunction("entity_types", -1, (c, t, lv) ->
@@ -341,4 +340,112 @@ public class Entities
             return Value.NULL;
         });
     }
+
+    private record Feature(String name, BiFunction<Entity, Value, Value> accessor)
+    {
+    }
+
+    private static List<Feature> resolveFeatures(Context c, Value features)
+    {
+        List<Value> names = features instanceof final ListValue list ? list.getItems() : List.of(features);
+        List<Feature> resolved = new ArrayList<>(names.size());
+        for (Value name : names)
+        {
+            String what = name.getString().toLowerCase(Locale.ROOT);
+            if (what.equals("tags"))
+            {
+                c.host.issueDeprecation("'tags' for entity querying");
+            }
+            BiFunction<Entity, Value, Value> accessor = EntityValue.getAccessor(what);
+            if (accessor == null)
+            {
+                throw new InternalExpressionException("Unknown entity feature: " + what);
+            }
+            resolved.add(new Feature(what, accessor));
+        }
+        return resolved;
+    }
+
+    /**
+     * Handles single queries, as well as batches, where the entity is a list of entities and/or the feature a list of features.
+     * In batches each feature is resolved once for all entities.
+     */
+    private static Value query(Context c, List<Value> lv, @Nullable List<Feature> resolved)
+    {
+        if (lv.size() < 2)
+        {
+            throw new InternalExpressionException("'query' takes entity as a first argument, and queried feature as a second");
+        }
+        Value v = lv.get(0);
+        boolean manyFeatures = lv.get(1) instanceof ListValue;
+        List<Feature> features = resolved != null ? resolved : resolveFeatures(c, lv.get(1));
+        Value arg = switch (lv.size())
+                {
+                    case 2 -> null;
+                    case 3 -> lv.get(2);
+                    default -> ListValue.wrap(lv.subList(2, lv.size()));
+                };
+        if (v instanceof final EntityValue ev)
+        {
+            return query(ev, features, manyFeatures, arg);
+        }
+        if (v instanceof final ListValue entities)
+        {
+            List<Value> results = new ArrayList<>(entities.length());
+            for (Value entity : entities.getItems())
+            {
+                if (!(entity instanceof final EntityValue ev))
+                {
+                    throw new InternalExpressionException("Batch query requires a list of entities");
+                }
+                results.add(query(ev, features, manyFeatures, arg));
+            }
+            return ListValue.wrap(results);
+        }
+        throw new InternalExpressionException("First argument to query should be an entity");
+    }
+
+    private static Value query(EntityValue ev, List<Feature> features, boolean manyFeatures, @Nullable Value arg)
+    {
+        if (!manyFeatures)
+        {
+            Feature feature = features.get(0);
+            return ev.get(feature.accessor(), feature.name(), arg);
+        }
+        List<Value> results = new ArrayList<>(features.size());
+        for (Feature feature : features)
+        {
+            results.add(ev.get(feature.accessor(), feature.name(), arg));
+        }
+        return ListValue.wrap(results);
+    }
+
+    private static Value modify(List<Value> lv, @Nullable BiConsumer<Entity, Value> modifier)
+    {
+        if (lv.size() < 2)
+        {
+            throw new InternalExpressionException("'modify' takes entity as a first argument, and queried feature as a second");
+        }
+        Value v = lv.get(0);
+        if (!(v instanceof final EntityValue ev))
+        {
+            throw new InternalExpressionException("First argument to modify should be an entity");
+        }
+        String what = lv.get(1).getString();
+        Value toWhat = switch (lv.size())
+                {
+                    case 2 -> null;
+                    case 3 -> lv.get(2);
+                    default -> ListValue.wrap(lv.subList(2, lv.size()));
+                };
+        if (modifier != null)
+        {
+            ev.set(modifier, what, toWhat);
+        }
+        else
+        {
+            ev.set(what, toWhat);
+        }
+        return v;
+    }
 }
@@ -1,13 +1,18 @@
 package carpet.script.api;
 
 import carpet.script.CarpetContext;
+import carpet.script.Context;
 import carpet.script.Expression;
+import carpet.script.argument.FunctionArgument;
+import carpet.script.exception.ExitStatement;
 import carpet.script.exception.ExpressionException;
 import carpet.script.exception.InternalExpressionException;
+import carpet.script.value.FunctionValue;
 import carpet.script.value.ThreadValue;
 import carpet.script.value.Value;
 import net.minecraft.server.MinecraftServer;
 
+import java.util.List;
 import java.util.concurrent.CompletionException;
 
 public class Threading
@@ -74,5 +79,47 @@ public class Threading
             // pass through placeholder
             // implmenetation should dock the task on the main thread.
         });
+
+        expression.addFunctionWithDelegation("task_batch", -1, false, false, (c, t, expr, tok, lv) -> {
+            if (lv.isEmpty())
+            {
+                throw new InternalExpressionException("'task_batch' requires at least function to call as a parameter");
+            }
+            FunctionArgument functionArgument = FunctionArgument.findIn(c, expression.module, lv, 0, false, true);
+            FunctionValue function = functionArgument.function;
+            List<Value> args = functionArgument.checkedArgs();
+            c.host.addToBatch(() -> {
+                try
+                {
+                    function.execute(c, Context.VOID, expr, tok, args, null).evalValue(c);
+                }
+                catch (ExitStatement ignored)
+                {
+                    // app stopped
+                }
+                catch (ExpressionException exc)
+                {
+                    c.host.handleExpressionException("Batched call failed\n", exc);
+                }
+            });
+            return Value.NULL;
+        });
+
+        expression.addContextFunction("task_barrier", 0, (c, t, lv) -> {
+            if (((CarpetContext) c).server().isSameThread())
+            {
+                c.host.applyBatch();
+                return Value.NULL;
+            }
+            try
+            {
+                c.host.batchBarrier().join();
+            }
+            catch (CompletionException exc)
+            {
+                throw new InternalExpressionException("Error while applying batched calls");
+            }
+            return Value.NULL;
+        });
     }
 }
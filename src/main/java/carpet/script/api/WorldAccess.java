@@ -1,6 +1,7 @@
 package carpet.script.api;
 
 import carpet.script.CarpetContext;
+import carpet.script.CarpetScriptHost;
 import carpet.script.CarpetScriptServer;
 import carpet.script.Context;
 import carpet.script.Expression;
@@ -15,11 +16,15 @@ import carpet.script.exception.InternalExpressionException;
 import carpet.script.exception.ThrowStatement;
 import carpet.script.exception.Throwables;
 import carpet.script.utils.BiomeInfo;
+import carpet.script.utils.BulkBlockWriter;
+import carpet.script.utils.ChunkRegenerationJob;
 import carpet.script.utils.InputValidator;
 import carpet.script.utils.WorldTools;
+import carpet.script.value.AbstractListValue;
 import carpet.script.value.BlockValue;
 import carpet.script.value.BooleanValue;
 import carpet.script.value.EntityValue;
+import carpet.script.value.FunctionValue;
 import carpet.script.value.ListValue;
 import carpet.script.value.MapValue;
 import carpet.script.value.NBTSerializableValue;
@@ -74,6 +79,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -259,6 +265,64 @@ public class WorldAccess
         }
     }
 
+    private static List<ChunkPos> requestedChunks(CarpetContext cc, List<Value> lv)
+    {
+        List<ChunkPos> requestedChunks = new ArrayList<>();
+        if (lv.size() == 1)
+        {
+            //either one block or list of chunks
+            Value first = lv.get(0);
+            if (first instanceof final ListValue list)
+            {
+                List<Value> listVal = list.getItems();
+                BlockArgument locator = BlockArgument.findIn(cc, listVal, 0);
+                requestedChunks.add(new ChunkPos(locator.block.getPos()));
+                while (listVal.size() > locator.offset)
+                {
+                    locator = BlockArgument.findIn(cc, listVal, locator.offset);
+                    requestedChunks.add(new ChunkPos(locator.block.getPos()));
+                }
+            }
+            else
+            {
+                BlockArgument locator = BlockArgument.findIn(cc, Collections.singletonList(first), 0);
+                requestedChunks.add(new ChunkPos(locator.block.getPos()));
+            }
+        }
+        else
+        {
+            BlockArgument locator = BlockArgument.findIn(cc, lv, 0);
+            ChunkPos from = new ChunkPos(locator.block.getPos());
+            if (lv.size() > locator.offset)
+            {
+                locator = BlockArgument.findIn(cc, lv, locator.offset);
+                ChunkPos to = new ChunkPos(locator.block.getPos());
+                int xmax = Math.max(from.x, to.x);
+                int zmax = Math.max(from.z, to.z);
+                for (int x = Math.min(from.x, to.x); x <= xmax; x++)
+                {
+                    for (int z = Math.min(from.z, to.z); z <= zmax; z++)
+                    {
+                        requestedChunks.add(new ChunkPos(x, z));
+                    }
+                }
+            }
+            else
+            {
+                requestedChunks.add(from);
+            }
+        }
+        return requestedChunks;
+    }
+
+    private static MapValue regenerationReport(Map<String, Integer> report)
+    {
+        return MapValue.wrap(report.entrySet().stream().collect(Collectors.toMap(
+                e -> new StringValue(e.getKey()),
+                e -> new NumericValue(e.getValue())
+        )));
+    }
+
     public static void apply(Expression expression)
     {
         expression.addContextFunction("block", -1, (c, t, lv) ->
@@ -624,7 +688,7 @@ public class WorldAccess
             {
                 force = lv.get(locator.offset).getBoolean();
             }
-            return BooleanValue.of(canHasChunk(((CarpetContext) c).level(), new ChunkPos(pos), null, force));
+            return BooleanValue.of(canHasChunk(((CarpetContext) c).level(), new ChunkPos(pos), force));
         });
 
         expression.addContextFunction("generation_status", -1, (c, t, lv) ->
@@ -838,6 +902,41 @@ public class WorldAccess
             return !result[0] ? Value.FALSE : new BlockValue(finalSourceBlockState, world, targetLocator.block.getPos());
         });
 
+        expression.addContextFunction("set_blocks", -1, (c, t, lv) ->
+        {
+            if (lv.isEmpty() || lv.size() > 2)
+            {
+                throw new InternalExpressionException("'set_blocks' requires a list of blocks to place, and an optional updates flag");
+            }
+            if (!(lv.get(0) instanceof final AbstractListValue blocks))
+            {
+                throw new InternalExpressionException("'set_blocks' requires a list of [pos, block, data?] entries");
+            }
+            CarpetContext cc = (CarpetContext) c;
+            boolean updates = lv.size() > 1 && lv.get(1).getBoolean();
+            List<BulkBlockWriter.Entry> entries = new ArrayList<>();
+            for (Value item : blocks)
+            {
+                if (!(item instanceof final ListValue entry))
+                {
+                    throw new InternalExpressionException("'set_blocks' entries need to be lists of position, block, and optional block data");
+                }
+                List<Value> args = entry.getItems();
+                BlockArgument targetLocator = BlockArgument.findIn(cc, args, 0);
+                BlockArgument sourceLocator = BlockArgument.findIn(cc, args, targetLocator.offset, true);
+                CompoundTag data = sourceLocator.block.getData();
+                if (args.size() > sourceLocator.offset && NBTSerializableValue.fromValue(args.get(sourceLocator.offset)) instanceof final NBTSerializableValue nbtsv)
+                {
+                    data = nbtsv.getCompoundTag();
+                }
+                entries.add(new BulkBlockWriter.Entry(targetLocator.block.getPos(), sourceLocator.block.getBlockState(), data));
+            }
+            ServerLevel world = cc.level();
+            int[] changed = {0};
+            cc.server().executeBlocking(() -> changed[0] = BulkBlockWriter.apply(world, entries, updates));
+            return new NumericValue(changed[0]);
+        });
+
         expression.addContextFunction("destroy", -1, (c, t, lv) ->
         {
             CarpetContext cc = (CarpetContext) c;
@@ -1587,64 +1686,61 @@ public class WorldAccess
         expression.addContextFunction("reset_chunk", -1, (c, t, lv) ->
         {
             CarpetContext cc = (CarpetContext) c;
-            List<ChunkPos> requestedChunks = new ArrayList<>();
-            if (lv.size() == 1)
-            {
-                //either one block or list of chunks
-                Value first = lv.get(0);
-                if (first instanceof final ListValue list)
-                {
-                    List<Value> listVal = list.getItems();
-                    BlockArgument locator = BlockArgument.findIn(cc, listVal, 0);
-                    requestedChunks.add(new ChunkPos(locator.block.getPos()));
-                    while (listVal.size() > locator.offset)
-                    {
-                        locator = BlockArgument.findIn(cc, listVal, locator.offset);
-                        requestedChunks.add(new ChunkPos(locator.block.getPos()));
-                    }
-                }
-                else
-                {
-                    BlockArgument locator = BlockArgument.findIn(cc, Collections.singletonList(first), 0);
-                    requestedChunks.add(new ChunkPos(locator.block.getPos()));
-                }
-            }
-            else
-            {
-                BlockArgument locator = BlockArgument.findIn(cc, lv, 0);
-                ChunkPos from = new ChunkPos(locator.block.getPos());
-                if (lv.size() > locator.offset)
-                {
-                    locator = BlockArgument.findIn(cc, lv, locator.offset);
-                    ChunkPos to = new ChunkPos(locator.block.getPos());
-                    int xmax = Math.max(from.x, to.x);
-                    int zmax = Math.max(from.z, to.z);
-                    for (int x = Math.min(from.x, to.x); x <= xmax; x++)
-                    {
-                        for (int z = Math.min(from.z, to.z); z <= zmax; z++)
-                        {
-                            requestedChunks.add(new ChunkPos(x, z));
-                        }
-                    }
-                }
-                else
-                {
-                    requestedChunks.add(from);
-                }
-            }
+            List<ChunkPos> requestedChunks = requestedChunks(cc, lv);
             ServerLevel world = cc.level();
             Value[] result = new Value[]{Value.NULL};
             ((CarpetContext) c).server().executeBlocking(() ->
             {
                 Map<String, Integer> report = Vanilla.ChunkMap_regenerateChunkRegion(world.getChunkSource().chunkMap, requestedChunks);
-                result[0] = MapValue.wrap(report.entrySet().stream().collect(Collectors.toMap(
-                        e -> new StringValue(e.getKey()),
-                        e -> new NumericValue(e.getValue())
-                )));
+                result[0] = regenerationReport(report);
             });
             return result[0];
         });
 
+        expression.addContextFunction("reset_chunk_async", -1, (c, t, lv) ->
+        {
+            CarpetContext cc = (CarpetContext) c;
+            FunctionValue callback = null;
+            List<Value> positions = lv;
+            if (!lv.isEmpty() && lv.get(lv.size() - 1) instanceof final FunctionValue fun)
+            {
+                fun.checkArgs(2);
+                callback = fun;
+                positions = lv.subList(0, lv.size() - 1);
+            }
+            if (positions.isEmpty())
+            {
+                throw new InternalExpressionException("'reset_chunk_async' requires chunks to reset");
+            }
+            List<ChunkPos> requestedChunks = requestedChunks(cc, positions);
+            ServerLevel world = cc.level();
+            Consumer<ChunkRegenerationJob> listener = null;
+            if (callback != null)
+            {
+                FunctionValue function = callback;
+                CarpetContext context = cc.duplicate();
+                CarpetScriptHost host = (CarpetScriptHost) c.host;
+                listener = job -> {
+                    Map<String, Integer> report = job.report();
+                    report.put("processed_chunks", job.processedChunks());
+                    report.put("total_chunks", job.totalChunks());
+                    MapValue progress = regenerationReport(report);
+                    progress.getMap().put(StringValue.of("status"), StringValue.of(!job.isFinished() ? "running" : job.isCancelled() ? "cancelled" : "done"));
+                    host.scriptServer().events.runScheduledCall(context.origin(), context.source(), host.getName(), host, function, List.of(NumericValue.of(job.id), progress));
+                };
+            }
+            Consumer<ChunkRegenerationJob> progressListener = listener;
+            int[] id = new int[]{0};
+            // only the app that started the job can cancel it
+            cc.server().executeBlocking(() -> id[0] = Vanilla.ChunkMap_scheduleChunkRegeneration(
+                    world.getChunkSource().chunkMap, requestedChunks, ChunkRegenerationJob.DEFAULT_SLICE_CHUNKS, progressListener, c.host
+            ).id);
+            return NumericValue.of(id[0]);
+        });
+
+        expression.addContextFunction("reset_chunk_cancel", 1, (c, t, lv) ->
+                BooleanValue.of(ChunkRegenerationJob.cancel(NumericValue.asNumber(lv.get(0)).getInt(), c.host)));
+
         expression.addContextFunction("inhabited_time", -1, (c, t, lv) ->
         {
             CarpetContext cc = (CarpetContext) c;
@@ -7,7 +7,10 @@ import carpet.script.ScriptHost;
 import carpet.script.exception.InternalExpressionException;
 import carpet.script.exception.ThrowStatement;
 import carpet.script.exception.Throwables;
+import carpet.script.utils.AppFileIO;
+import carpet.script.utils.ZipFileSystems;
 import carpet.script.value.MapValue;
+import carpet.script.value.StreamedFileValue;
 import carpet.script.value.StringValue;
 import carpet.script.value.Value;
 import com.google.gson.JsonElement;
@@ -31,20 +34,18 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemNotFoundException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -61,20 +62,12 @@ public class FileArgument
     private Path zipPath;
     private final ScriptHost host;
 
-    public static final Object writeIOSync = new Object();
-
     public void close()
     {
-        if (zfs != null && zfs.isOpen())
+        if (zfs != null)
         {
-            try
-            {
-                zfs.close();
-            }
-            catch (IOException e)
-            {
-                throw new InternalExpressionException("Unable to close zip container: " + zipContainer);
-            }
+            // zip stays open for further use, and gets written out once it's no longer used
+            ZipFileSystems.release(zipPath);
             zfs = null;
         }
     }
@@ -217,29 +210,20 @@ public class FileArgument
         {
             if (zfs == null)
             {
-                Map<String, String> env = new HashMap<>();
-                if (reason == Reason.CREATE)
-                {
-                    env.put("create", "true");
-                }
                 zipPath = resolve(getDescriptor(module, zipContainer));
-                if (!Files.exists(zipPath) && reason != Reason.CREATE)
-                {
-                    return null; // no zip file
-                }
                 try
                 {
-                    if (!Files.exists(zipPath.getParent()))
-                    {
-                        Files.createDirectories(zipPath.getParent());
-                    }
-                    zfs = FileSystems.newFileSystem(URI.create("jar:" + zipPath.toUri()), env);
+                    zfs = ZipFileSystems.acquire(zipPath, reason == Reason.CREATE, reason != Reason.READ);
                 }
                 catch (FileSystemNotFoundException | IOException e)
                 {
                     CarpetScriptServer.LOG.warn("Exception when opening zip file", e);
                     throw new ThrowStatement("Unable to open zip file: " + zipContainer, Throwables.IO_EXCEPTION);
                 }
+                if (zfs == null)
+                {
+                    return null; // no zip file
+                }
             }
             return zfs.getPath(resource + (isFolder ? "/" : type.extension));
         }
@@ -272,11 +256,73 @@ public class FileArgument
     }
 
 
+    private boolean hasPath(@Nullable Module module)
+    {
+        return isShared || module != null;
+    }
+
+    /**
+     * @return path of the file, with the path of the zip container if it is in one, identifying writes to it
+     */
+    private String fileKey(@Nullable Module module)
+    {
+        String suffix = isFolder ? "" : type.extension;
+        return zipContainer == null
+                ? resolve(getDescriptor(module, resource) + suffix).toString()
+                : resolve(getDescriptor(module, zipContainer)) + "!/" + resource + suffix;
+    }
+
+    /**
+     * @return lock guarding the file, or the entire zip container the file is in
+     */
+    private Object lock(@Nullable Module module)
+    {
+        if (!hasPath(module))
+        {
+            return this; // no file to guard
+        }
+        return AppFileIO.lock(zipContainer == null ? fileKey(module) : resolve(getDescriptor(module, zipContainer)).toString());
+    }
+
+    private void awaitPendingWrites(@Nullable Module module)
+    {
+        if (hasPath(module))
+        {
+            AppFileIO.await(fileKey(module));
+        }
+    }
+
+    /**
+     * Schedules a write to the file on the file writer thread
+     */
+    public CompletableFuture<Boolean> scheduleWrite(@Nullable Module module, AppFileIO.Content content)
+    {
+        if (!hasPath(module))
+        {
+            return CompletableFuture.completedFuture(false);
+        }
+        return AppFileIO.schedule(fileKey(module), content, c -> write(module, c));
+    }
+
+    private boolean write(Module module, AppFileIO.Content content)
+    {
+        synchronized (lock(module))
+        {
+            if (content.tag() != null)
+            {
+                return saveNbtData(module, content.tag());
+            }
+            boolean removed = content.truncate() && dropExistingFile(module);
+            return content.lines() == null ? removed : appendToTextFile(module, content.lines());
+        }
+    }
+
     public boolean findPathAndApply(Module module, Consumer<Path> action)
     {
+        awaitPendingWrites(module);
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);//, resourceName, supportedTypes.get(type), isShared);
                 if (dataFile == null)
@@ -320,24 +366,31 @@ public class FileArgument
     public Stream<String> listFolder(Module module)
     {
         Stream<String> strings;
-        try (Stream<Path> result = listFiles(module))
+        if (hasPath(module))
+        {
+            AppFileIO.awaitFolder(fileKey(module));
+        }
+        try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
-                if (result == null)
+                try (Stream<Path> result = listFiles(module))
                 {
-                    return null;
-                }
-                Path rootPath = moduleRootPath(module);
-                if (rootPath == null)
-                {
-                    return null;
+                    if (result == null)
+                    {
+                        return null;
+                    }
+                    Path rootPath = moduleRootPath(module);
+                    if (rootPath == null)
+                    {
+                        return null;
+                    }
+                    String zipComponent = (zipContainer != null) ? rootPath.relativize(zipPath).toString() : null;
+                    // need to evaluate the stream before exiting try-with-resources else there'll be no data to stream
+                    strings = (zipContainer == null)
+                            ? result.map(p -> rootPath.relativize(p).toString().replaceAll("[\\\\/]+", "/")).toList().stream()
+                            : result.map(p -> (zipComponent + '/' + p.toString()).replaceAll("[\\\\/]+", "/")).toList().stream();
                 }
-                String zipComponent = (zipContainer != null) ? rootPath.relativize(zipPath).toString() : null;
-                // need to evaluate the stream before exiting try-with-resources else there'll be no data to stream
-                strings = (zipContainer == null)
-                        ? result.map(p -> rootPath.relativize(p).toString().replaceAll("[\\\\/]+", "/")).toList().stream()
-                        : result.map(p -> (zipComponent + '/' + p.toString()).replaceAll("[\\\\/]+", "/")).toList().stream();
             }
         }
         finally
@@ -373,7 +426,7 @@ public class FileArgument
     {
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);
                 if (dataFile == null)
@@ -410,9 +463,16 @@ public class FileArgument
     @Nullable
     public Tag getNbtData(Module module) // aka getData
     {
+        AppFileIO.Content pending = hasPath(module) ? AppFileIO.pending(fileKey(module)) : null;
+        if (pending != null && pending.lines() == null)
+        {
+            // not written yet, but we already know what it will be
+            return pending.tag() == null ? null : pending.tag().copy();
+        }
+        awaitPendingWrites(module);
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);
                 if (dataFile == null || !Files.exists(dataFile))
@@ -483,7 +543,7 @@ public class FileArgument
     {
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);
                 if (dataFile == null)
@@ -546,7 +606,7 @@ public class FileArgument
     {
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);
                 if (dataFile == null)
@@ -570,9 +630,10 @@ public class FileArgument
     @Nullable
     public List<String> listFile(Module module)
     {
+        awaitPendingWrites(module);
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);
                 if (dataFile == null)
@@ -592,6 +653,60 @@ public class FileArgument
         }
     }
 
+    /**
+     * @return lazy list of the lines, or elements of the top level JSON list, of the file, or null if it doesn't exist
+     */
+    @Nullable
+    public StreamedFileValue streamContent(Module module)
+    {
+        if (!hasPath(module))
+        {
+            return null;
+        }
+        awaitPendingWrites(module);
+        try
+        {
+            Path dataFile = toPath(module);
+            if (dataFile == null || !Files.exists(dataFile))
+            {
+                return null;
+            }
+        }
+        finally
+        {
+            close();
+        }
+        return new StreamedFileValue(getDisplayPath(), type == Type.JSON, new StreamedFileValue.Source()
+        {
+            @Override
+            public BufferedReader open()
+            {
+                awaitPendingWrites(module);
+                Path dataFile = toPath(module);
+                if (dataFile == null || !Files.exists(dataFile))
+                {
+                    return null;
+                }
+                try
+                {
+                    return Files.newBufferedReader(dataFile, StandardCharsets.UTF_8);
+                }
+                catch (IOException e)
+                {
+                    close();
+                    CarpetScriptServer.LOG.warn("IOException when opening file", e);
+                    throw new ThrowStatement("Failed to open file " + getDisplayPath(), Throwables.IO_EXCEPTION);
+                }
+            }
+
+            @Override
+            public void release()
+            {
+                close();
+            }
+        });
+    }
+
     public static List<String> listFileContent(Path filePath)
     {
         try (BufferedReader reader = Files.newBufferedReader(filePath, StandardCharsets.UTF_8))
@@ -618,9 +733,10 @@ public class FileArgument
     @Nullable
     public JsonElement readJsonFile(Module module)
     {
+        awaitPendingWrites(module);
         try
         {
-            synchronized (writeIOSync)
+            synchronized (lock(module))
             {
                 Path dataFile = toPath(module);
                 if (dataFile == null || !Files.exists(dataFile))
@@ -17,9 +17,12 @@ import carpet.script.Module;
 import carpet.script.exception.InternalExpressionException;
 import carpet.script.exception.LoadException;
 import carpet.script.value.MapValue;
+import carpet.script.value.NumericValue;
 import carpet.script.value.StringValue;
+import carpet.script.value.Value;
 import carpet.utils.CarpetProfiler;
 import carpet.utils.Messenger;
+import carpet.utils.TickTelemetry;
 import net.fabricmc.api.EnvType;
 import net.fabricmc.loader.api.FabricLoader;
 import net.fabricmc.loader.api.ModContainer;
@@ -41,6 +44,7 @@ import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -81,7 +85,7 @@ public class Carpet
 
     public static Runnable startProfilerSection(String name)
     {
-        CarpetProfiler.ProfilerToken token = CarpetProfiler.start_section(null, name, CarpetProfiler.TYPE.GENERAL);
+        int token = CarpetProfiler.start_section(null, name, CarpetProfiler.TYPE.GENERAL);
         return () -> CarpetProfiler.end_current_section(token);
     }
 
@@ -121,6 +125,22 @@ public class Carpet
         return CarpetSettings.carpetVersion;
     }
 
+    public static Value getTickTelemetry()
+    {
+        Map<Value, Value> result = new HashMap<>();
+        if (CarpetSettings.continuousProfiling)
+        {
+            TickTelemetry.summaries().forEach((section, summary) -> result.put(StringValue.of(section), MapValue.wrap(Map.of(
+                    StringValue.of("ticks"), NumericValue.of(summary.ticks()),
+                    StringValue.of("p50"), new NumericValue(summary.p50() / 1e6),
+                    StringValue.of("p99"), new NumericValue(summary.p99() / 1e6),
+                    StringValue.of("p999"), new NumericValue(summary.p999() / 1e6),
+                    StringValue.of("max"), new NumericValue(summary.max() / 1e6)
+            ))));
+        }
+        return MapValue.wrap(result);
+    }
+
     @Nullable
     public static String isModdedPlayer(Player p)
     {
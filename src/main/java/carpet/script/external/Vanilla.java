@@ -27,6 +27,7 @@ import carpet.mixins.Scoreboard_scarpetMixin;
 import carpet.network.ServerNetworkHandler;
 import carpet.script.CarpetScriptServer;
 import carpet.script.EntityEventsGroup;
+import carpet.script.utils.ChunkRegenerationJob;
 import carpet.script.value.MapValue;
 import carpet.script.value.StringValue;
 import carpet.script.value.Value;
@@ -89,6 +90,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 public class Vanilla
@@ -108,6 +110,11 @@ public class Vanilla
         return ((ThreadedAnvilChunkStorageInterface) chunkMap).regenerateChunkRegion(requestedChunks);
     }
 
+    public static ChunkRegenerationJob ChunkMap_scheduleChunkRegeneration(ChunkMap chunkMap, List<ChunkPos> requestedChunks, int sliceSize, Consumer<ChunkRegenerationJob> listener, Object owner)
+    {
+        return ((ThreadedAnvilChunkStorageInterface) chunkMap).scheduleChunkRegeneration(requestedChunks, sliceSize, listener, owner);
+    }
+
     public static List<Collection<ItemStack>> Ingredient_getRecipeStacks(Ingredient ingredient)
     {
         return ((IngredientInterface) (Object) ingredient).getRecipeStacks();
@@ -329,6 +336,31 @@ public class Vanilla
         return CarpetSettings.scriptsOptimization;
     }
 
+    public static int ScriptServer_compilationThreshold(MinecraftServer server)
+    {
+        return CarpetSettings.scriptsCompilationThreshold;
+    }
+
+    public static int ScriptServer_taskParallelism(MinecraftServer server)
+    {
+        return CarpetSettings.scriptsTaskParallelism;
+    }
+
+    public static int ScriptServer_taskQuota(MinecraftServer server)
+    {
+        return CarpetSettings.scriptsTaskQuota;
+    }
+
+    public static boolean ScriptServer_entityAreaCaching(MinecraftServer server)
+    {
+        return CarpetSettings.scriptsEntityAreaCaching;
+    }
+
+    public static boolean ScriptServer_fileWriteBehind(MinecraftServer server)
+    {
+        return CarpetSettings.scriptsFileWriteBehind;
+    }
+
     public static boolean ScriptServer_scriptDebugging(MinecraftServer server)
     {
         return CarpetSettings.scriptsDebugging;
@@ -5,6 +5,7 @@ import carpet.script.Expression;
 import carpet.script.exception.InternalExpressionException;
 import carpet.script.value.BooleanValue;
 import carpet.script.value.ListValue;
+import carpet.script.value.NumericArrayList;
 import carpet.script.value.NumericValue;
 import carpet.script.value.Value;
 
@@ -26,7 +27,7 @@ public class Arithmetic
                 {
                     factorial = factorial * i;
                 }
-                return new NumericValue(factorial);
+                return NumericValue.of(factorial);
             }
             else if (number > 170)
             {
@@ -95,8 +96,7 @@ public class Arithmetic
                 a = temp;
                 iter++;
             }
-            long iFinal = iter;
-            return new NumericValue(iFinal);
+            return NumericValue.of(iter);
         });
 
         expression.addFunction("max", lv ->
@@ -109,6 +109,10 @@ public class Arithmetic
             if (lv.size() == 1 && lv.get(0) instanceof ListValue)
             {
                 lv = ((ListValue) lv.get(0)).getItems();
+                if (lv instanceof NumericArrayList numbers && numbers.isNumeric() && !numbers.isEmpty())
+                {
+                    return numbers.get(numbers.indexOfExtreme(true));
+                }
             }
             for (Value parameter : lv)
             {
@@ -130,6 +134,10 @@ public class Arithmetic
             if (lv.size() == 1 && lv.get(0) instanceof ListValue)
             {
                 lv = ((ListValue) lv.get(0)).getItems();
+                if (lv instanceof NumericArrayList numbers && numbers.isNumeric() && !numbers.isEmpty())
+                {
+                    return numbers.get(numbers.indexOfExtreme(false));
+                }
             }
             for (Value parameter : lv)
             {
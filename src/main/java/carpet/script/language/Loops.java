@@ -8,6 +8,7 @@ import carpet.script.exception.ContinueStatement;
 import carpet.script.exception.InternalExpressionException;
 import carpet.script.value.AbstractListValue;
 import carpet.script.value.ListValue;
+import carpet.script.value.NumericArrayList;
 import carpet.script.value.NumericValue;
 import carpet.script.value.Value;
 
@@ -173,37 +174,46 @@ public class Loops
             //scoping
             LazyValue defaultVal = c.getVariable("_");
             LazyValue iterVal = c.getVariable("_i");
-            List<Value> result = new ArrayList<>();
-            for (int i = 0; iterator.hasNext(); i++)
+            // numeric results are kept unboxed, until something else shows up
+            List<Value> result = new NumericArrayList();
+            try
             {
-                Value next = iterator.next();
-                if(next == Value.EOL) {
-                    continue;
-                }
-                String variable = next.boundVariable;
-                next.bindTo("_");
-                int doYouReally = i;
-                c.setVariable("_", (cc, tt) -> next);
-                c.setVariable("_i", (cc, tt) -> new NumericValue(doYouReally).bindTo("_i"));
-                try
-                {
-                    result.add(expr.evalValue(c, t));
-                }
-                catch (BreakStatement | ContinueStatement stmt)
+                for (int i = 0; iterator.hasNext(); i++)
                 {
-                    if (stmt.retval != null)
+                    Value item = iterator.next();
+                    if(item == Value.EOL) {
+                        continue;
+                    }
+                    String variable = item.boundVariable;
+                    // shared values, like small numbers, come back bound as a copy
+                    Value next = item.bindTo("_");
+                    int doYouReally = i;
+                    c.setVariable("_", (cc, tt) -> next);
+                    c.setVariable("_i", (cc, tt) -> new NumericValue(doYouReally).bindTo("_i"));
+                    try
                     {
-                        result.add(stmt.retval);
+                        result.add(expr.evalValue(c, t));
                     }
-                    if (stmt instanceof BreakStatement)
+                    catch (BreakStatement | ContinueStatement stmt)
                     {
-                        next.boundVariable = variable;
-                        break;
+                        if (stmt.retval != null)
+                        {
+                            result.add(stmt.retval);
+                        }
+                        if (stmt instanceof BreakStatement)
+                        {
+                            next.boundVariable = variable;
+                            break;
+                        }
                     }
+                    next.boundVariable = variable;
                 }
-                next.boundVariable = variable;
             }
-            ((AbstractListValue) rval).fatality();
+            finally
+            {
+                // streamed files stay open until released, also when the expression throws
+                ((AbstractListValue) rval).fatality();
+            }
             Value ret = ListValue.wrap(result);
             //revering scope
             c.setVariable("_", defaultVal);
@@ -231,39 +241,45 @@ public class Loops
             LazyValue defaultVal = c.getVariable("_");
             LazyValue iterVal = c.getVariable("_i");
             List<Value> result = new ArrayList<>();
-            for (int i = 0; iterator.hasNext(); i++)
+            try
             {
-                Value next = iterator.next();
-                if(next == Value.EOL) {
-                    continue;
-                }
-                String veriable = next.boundVariable;
-                next.bindTo("_");
-                int seriously = i;
-                c.setVariable("_", (cc, tt) -> next);
-                c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
-                try
+                for (int i = 0; iterator.hasNext(); i++)
                 {
-                    if (expr.evalValue(c, Context.BOOLEAN).getBoolean())
-                    {
-                        result.add(next);
+                    Value item = iterator.next();
+                    if(item == Value.EOL) {
+                        continue;
                     }
-                }
-                catch (BreakStatement | ContinueStatement stmt)
-                {
-                    if (stmt.retval != null && stmt.retval.getBoolean())
+                    String veriable = item.boundVariable;
+                    Value next = item.bindTo("_");
+                    int seriously = i;
+                    c.setVariable("_", (cc, tt) -> next);
+                    c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
+                    try
                     {
-                        result.add(next);
+                        if (expr.evalValue(c, Context.BOOLEAN).getBoolean())
+                        {
+                            result.add(next);
+                        }
                     }
-                    if (stmt instanceof BreakStatement)
+                    catch (BreakStatement | ContinueStatement stmt)
                     {
-                        next.boundVariable = veriable;
-                        break;
+                        if (stmt.retval != null && stmt.retval.getBoolean())
+                        {
+                            result.add(next);
+                        }
+                        if (stmt instanceof BreakStatement)
+                        {
+                            next.boundVariable = veriable;
+                            break;
+                        }
                     }
+                    next.boundVariable = veriable;
                 }
-                next.boundVariable = veriable;
             }
-            ((AbstractListValue) rval).fatality();
+            finally
+            {
+                ((AbstractListValue) rval).fatality();
+            }
             Value ret = ListValue.wrap(result);
             //revering scope
             c.setVariable("_", defaultVal);
@@ -291,40 +307,46 @@ public class Loops
             LazyValue defaultVal = c.getVariable("_");
             LazyValue iterVal = c.getVariable("_i");
             Value result = Value.NULL;
-            for (int i = 0; iterator.hasNext(); i++)
+            try
             {
-                Value next = iterator.next();
-                if(next == Value.EOL) {
-                    continue;
-                }
-                String variable = next.boundVariable;
-                next.bindTo("_");
-                int seriously = i;
-                c.setVariable("_", (cc, tt) -> next);
-                c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
-                try
+                for (int i = 0; iterator.hasNext(); i++)
                 {
-                    if (expr.evalValue(c, Context.BOOLEAN).getBoolean())
+                    Value item = iterator.next();
+                    if(item == Value.EOL) {
+                        continue;
+                    }
+                    String variable = item.boundVariable;
+                    Value next = item.bindTo("_");
+                    int seriously = i;
+                    c.setVariable("_", (cc, tt) -> next);
+                    c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
+                    try
+                    {
+                        if (expr.evalValue(c, Context.BOOLEAN).getBoolean())
+                        {
+                            result = next;
+                            next.boundVariable = variable;
+                            break;
+                        }
+                    }
+                    catch (BreakStatement stmt)
                     {
-                        result = next;
+                        result = stmt.retval == null ? next : stmt.retval;
                         next.boundVariable = variable;
                         break;
                     }
-                }
-                catch (BreakStatement stmt)
-                {
-                    result = stmt.retval == null ? next : stmt.retval;
+                    catch (ContinueStatement ignored)
+                    {
+                        throw new InternalExpressionException("'continue' inside 'first' function has no sense");
+                    }
                     next.boundVariable = variable;
-                    break;
-                }
-                catch (ContinueStatement ignored)
-                {
-                    throw new InternalExpressionException("'continue' inside 'first' function has no sense");
                 }
-                next.boundVariable = variable;
+            }
+            finally
+            {
+                ((AbstractListValue) rval).fatality();
             }
             //revering scope
-            ((AbstractListValue) rval).fatality();
             Value whyWontYouTrustMeJava = result;
             c.setVariable("_", defaultVal);
             c.setVariable("_i", iterVal);
@@ -351,27 +373,33 @@ public class Loops
             LazyValue defaultVal = c.getVariable("_");
             LazyValue iterVal = c.getVariable("_i");
             LazyValue result = LazyValue.TRUE;
-            for (int i = 0; iterator.hasNext(); i++)
+            try
             {
-                Value next = iterator.next();
-                if(next == Value.EOL) {
-                    continue;
-                }
-                String variable = next.boundVariable;
-                next.bindTo("_");
-                int seriously = i;
-                c.setVariable("_", (cc, tt) -> next);
-                c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
-                if (!expr.evalValue(c, Context.BOOLEAN).getBoolean())
+                for (int i = 0; iterator.hasNext(); i++)
                 {
-                    result = LazyValue.FALSE;
+                    Value item = iterator.next();
+                    if(item == Value.EOL) {
+                        continue;
+                    }
+                    String variable = item.boundVariable;
+                    Value next = item.bindTo("_");
+                    int seriously = i;
+                    c.setVariable("_", (cc, tt) -> next);
+                    c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
+                    if (!expr.evalValue(c, Context.BOOLEAN).getBoolean())
+                    {
+                        result = LazyValue.FALSE;
+                        next.boundVariable = variable;
+                        break;
+                    }
                     next.boundVariable = variable;
-                    break;
                 }
-                next.boundVariable = variable;
+            }
+            finally
+            {
+                ((AbstractListValue) rval).fatality();
             }
             //revering scope
-            ((AbstractListValue) rval).fatality();
             c.setVariable("_", defaultVal);
             c.setVariable("_i", iterVal);
             return result;
@@ -424,42 +452,48 @@ public class Loops
             LazyValue defaultVal = c.getVariable("_");
             LazyValue iterVal = c.getVariable("_i");
             int successCount = 0;
-            for (int i = 0; iterator.hasNext(); i++)
+            try
             {
-                Value next = iterator.next();
-                if(next == Value.EOL) {
-                    continue;
-                }
-                String variable = next.boundVariable;
-                next.bindTo("_");
-                int seriously = i;
-                c.setVariable("_", (cc, tt) -> next);
-                c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
-                Value result = Value.FALSE;
-                try
-                {
-                    result = expr.evalValue(c, t);
-                }
-                catch (BreakStatement | ContinueStatement stmt)
+                for (int i = 0; iterator.hasNext(); i++)
                 {
-                    if (stmt.retval != null)
+                    Value item = iterator.next();
+                    if(item == Value.EOL) {
+                        continue;
+                    }
+                    String variable = item.boundVariable;
+                    Value next = item.bindTo("_");
+                    int seriously = i;
+                    c.setVariable("_", (cc, tt) -> next);
+                    c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
+                    Value result = Value.FALSE;
+                    try
                     {
-                        result = stmt.retval;
+                        result = expr.evalValue(c, t);
                     }
-                    if (stmt instanceof BreakStatement)
+                    catch (BreakStatement | ContinueStatement stmt)
                     {
-                        next.boundVariable = variable;
-                        break;
+                        if (stmt.retval != null)
+                        {
+                            result = stmt.retval;
+                        }
+                        if (stmt instanceof BreakStatement)
+                        {
+                            next.boundVariable = variable;
+                            break;
+                        }
                     }
+                    if (t != Context.VOID && result.getBoolean())
+                    {
+                        successCount++;
+                    }
+                    next.boundVariable = variable;
                 }
-                if (t != Context.VOID && result.getBoolean())
-                {
-                    successCount++;
-                }
-                next.boundVariable = variable;
+            }
+            finally
+            {
+                ((AbstractListValue) rval).fatality();
             }
             //revering scope
-            ((AbstractListValue) rval).fatality();
             c.setVariable("_", defaultVal);
             c.setVariable("_i", iterVal);
             long promiseWontChange = successCount;
@@ -498,39 +532,45 @@ public class Loops
             LazyValue accumulatorVal = c.getVariable("_a");
             LazyValue iterVal = c.getVariable("_i");
 
-            for (int i = 0; iterator.hasNext(); i++)
+            try
             {
-                Value next = iterator.next();
-                if(next == Value.EOL) {
-                    continue;
-                }
-                String variable = next.boundVariable;
-                next.bindTo("_");
-                Value promiseWontChangeYou = acc;
-                int seriously = i;
-                c.setVariable("_a", (cc, tt) -> promiseWontChangeYou.bindTo("_a"));
-                c.setVariable("_", (cc, tt) -> next);
-                c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
-                try
+                for (int i = 0; iterator.hasNext(); i++)
                 {
-                    acc = expr.evalValue(c, t);
-                }
-                catch (BreakStatement | ContinueStatement stmt)
-                {
-                    if (stmt.retval != null)
+                    Value item = iterator.next();
+                    if(item == Value.EOL) {
+                        continue;
+                    }
+                    String variable = item.boundVariable;
+                    Value next = item.bindTo("_");
+                    Value promiseWontChangeYou = acc;
+                    int seriously = i;
+                    c.setVariable("_a", (cc, tt) -> promiseWontChangeYou.bindTo("_a"));
+                    c.setVariable("_", (cc, tt) -> next);
+                    c.setVariable("_i", (cc, tt) -> new NumericValue(seriously).bindTo("_i"));
+                    try
                     {
-                        acc = stmt.retval;
+                        acc = expr.evalValue(c, t);
                     }
-                    if (stmt instanceof BreakStatement)
+                    catch (BreakStatement | ContinueStatement stmt)
                     {
-                        next.boundVariable = variable;
-                        break;
+                        if (stmt.retval != null)
+                        {
+                            acc = stmt.retval;
+                        }
+                        if (stmt instanceof BreakStatement)
+                        {
+                            next.boundVariable = variable;
+                            break;
+                        }
                     }
+                    next.boundVariable = variable;
                 }
-                next.boundVariable = variable;
+            }
+            finally
+            {
+                ((AbstractListValue) rval).fatality();
             }
             //reverting scope
-            ((AbstractListValue) rval).fatality();
             c.setVariable("_a", accumulatorVal);
             c.setVariable("_", defaultVal);
             c.setVariable("_i", iterVal);
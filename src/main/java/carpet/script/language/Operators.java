@@ -12,6 +12,7 @@ import carpet.script.value.FunctionUnpackedArgumentsValue;
 import carpet.script.value.LContainerValue;
 import carpet.script.value.ListValue;
 import carpet.script.value.MapValue;
+import carpet.script.value.NumericArrayList;
 import carpet.script.value.NumericValue;
 import carpet.script.value.Value;
 
@@ -20,6 +21,9 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
 
 public class Operators
 {
@@ -39,54 +43,60 @@ public class Operators
         put("nextop;", 1);
     }};
 
-    public static void apply(Expression expression)
+    /**
+     * Folds arguments of sum/difference/product, keeping integer accumulators unboxed for as long as the arguments are
+     * integers, so long chains don't allocate a value per intermediate result
+     */
+    private static Value accumulate(List<Value> lv, LongBinaryOperator integerOp, DoubleBinaryOperator doubleOp, BinaryOperator<Value> op)
     {
-        expression.addBinaryOperator("+", precedence.get("addition+-"), true, Value::add);
-        expression.addFunction("sum", lv -> {
-            int size = lv.size();
-            if (size == 0)
+        int size = lv.size();
+        if (size == 0)
+        {
+            return Value.NULL;
+        }
+        if (lv instanceof NumericArrayList numbers)
+        {
+            // unpacked numeric lists, like in sum(...list), are folded directly over their primitives
+            Value folded = numbers.reduce(integerOp, doubleOp);
+            if (folded != null)
             {
-                return Value.NULL;
+                return folded;
             }
-            Value accumulator = lv.get(0);
-            for (Value v : lv.subList(1, size))
+        }
+        Value accumulator = lv.get(0);
+        int i = 1;
+        if (accumulator instanceof final NumericValue first && first.isLongBacked())
+        {
+            long integerAccumulator = first.getLong();
+            while (i < size && lv.get(i) instanceof final NumericValue nv && nv.isLongBacked())
             {
-                accumulator = accumulator.add(v);
+                integerAccumulator = integerOp.applyAsLong(integerAccumulator, nv.getLong());
+                i++;
             }
-            return accumulator;
-        });
+            if (i > 1)
+            {
+                accumulator = NumericValue.of(integerAccumulator);
+            }
+        }
+        for (; i < size; i++)
+        {
+            accumulator = op.apply(accumulator, lv.get(i));
+        }
+        return accumulator;
+    }
+
+    public static void apply(Expression expression)
+    {
+        expression.addBinaryOperator("+", precedence.get("addition+-"), true, Value::add);
+        expression.addFunction("sum", lv -> accumulate(lv, Long::sum, Double::sum, Value::add));
         expression.addFunctionalEquivalence("+", "sum");
 
         expression.addBinaryOperator("-", precedence.get("addition+-"), true, Value::subtract);
-        expression.addFunction("difference", lv -> {
-            int size = lv.size();
-            if (size == 0)
-            {
-                return Value.NULL;
-            }
-            Value accumulator = lv.get(0);
-            for (Value v : lv.subList(1, size))
-            {
-                accumulator = accumulator.subtract(v);
-            }
-            return accumulator;
-        });
+        expression.addFunction("difference", lv -> accumulate(lv, (a, b) -> a - b, (a, b) -> a - b, Value::subtract));
         expression.addFunctionalEquivalence("-", "difference");
 
         expression.addBinaryOperator("*", precedence.get("multiplication*/%"), true, Value::multiply);
-        expression.addFunction("product", lv -> {
-            int size = lv.size();
-            if (size == 0)
-            {
-                return Value.NULL;
-            }
-            Value accumulator = lv.get(0);
-            for (Value v : lv.subList(1, size))
-            {
-                accumulator = accumulator.multiply(v);
-            }
-            return accumulator;
-        });
+        expression.addFunction("product", lv -> accumulate(lv, (a, b) -> a * b, (a, b) -> a * b, Value::multiply));
         expression.addFunctionalEquivalence("*", "product");
 
         expression.addBinaryOperator("/", precedence.get("multiplication*/%"), true, Value::divide);
@@ -121,7 +131,7 @@ public class Operators
             {
                 accumulator = accumulator & NumericValue.asNumber(v).getLong();
             }
-            return new NumericValue(accumulator);
+            return NumericValue.of(accumulator);
         });
 
         expression.addFunction("bitwise_xor", lv -> {
@@ -135,7 +145,7 @@ public class Operators
             {
                 accumulator = accumulator ^ NumericValue.asNumber(v).getLong();
             }
-            return new NumericValue(accumulator);
+            return NumericValue.of(accumulator);
         });
 
         expression.addFunction("bitwise_or", lv -> {
@@ -149,7 +159,7 @@ public class Operators
             {
                 accumulator = accumulator | NumericValue.asNumber(v).getLong();
             }
-            return new NumericValue(accumulator);
+            return NumericValue.of(accumulator);
         });
 
         // lazy cause RHS is only conditional
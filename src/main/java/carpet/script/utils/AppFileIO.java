@@ -0,0 +1,269 @@
+package carpet.script.utils;
+
+import carpet.script.CarpetScriptServer;
+import net.minecraft.nbt.Tag;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coordinates access to app files. Files are guarded by striped locks keyed by their path, so unrelated files don't
+ * wait on each other, and all writes go through a single background writer thread. Writes to a file that haven't
+ * started yet are coalesced, so an app rewriting the same file many times in a row only hits the disk once.
+ * Pending NBT content can be read back from memory, and other reads wait only for pending writes to the same file.
+ * Whenever the writer runs out of writes, it closes pooled zip file systems that need to be written out.
+ */
+public class AppFileIO
+{
+    private static final int STRIPES = 64;
+    private static final Object[] locks = new Object[STRIPES];
+
+    static
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Content to be written to a file, either a tag, or lines of text, optionally replacing the existing file.
+     * Having neither and replacing the file means removing it
+     */
+    public record Content(@Nullable Tag tag, boolean truncate, @Nullable List<String> lines)
+    {
+        public static Content of(Tag tag)
+        {
+            return new Content(tag.copy(), true, null);
+        }
+
+        public static Content text(List<String> lines)
+        {
+            return new Content(null, true, lines);
+        }
+
+        public static Content append(List<String> lines)
+        {
+            return new Content(null, false, lines);
+        }
+
+        public static Content delete()
+        {
+            return new Content(null, true, null);
+        }
+
+        private Content then(Content next)
+        {
+            if (next.truncate())
+            {
+                return next;
+            }
+            if (lines == null)
+            {
+                return new Content(tag, truncate, next.lines());
+            }
+            List<String> merged = new ArrayList<>(lines);
+            merged.addAll(next.lines());
+            return new Content(tag, truncate, merged);
+        }
+
+        public boolean isDelete()
+        {
+            return tag == null && lines == null;
+        }
+    }
+
+    private static class PendingWrite
+    {
+        private final String key;
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+        private Content content;
+        private Function<Content, Boolean> writer;
+        private boolean started = false;
+
+        private PendingWrite(String key, Content content, Function<Content, Boolean> writer)
+        {
+            this.key = key;
+            this.content = content;
+            this.writer = writer;
+        }
+    }
+
+    private static final Map<String, PendingWrite> pending = new HashMap<>();
+    private static final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+
+    static
+    {
+        Thread writerThread = new Thread(AppFileIO::writeLoop, "Scarpet file writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * @return lock guarding the file, or the zip container, with given path
+     */
+    public static Object lock(String key)
+    {
+        return locks[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    /**
+     * Schedules a write to a file. If there is already a write to the same file waiting, they are merged
+     * and only the merged content is written
+     *
+     * @param key    path of the file
+     * @param writer writes content to the file, called on the writer thread
+     * @return future completing when the content is written
+     */
+    public static CompletableFuture<Boolean> schedule(String key, Content content, Function<Content, Boolean> writer)
+    {
+        synchronized (pending)
+        {
+            PendingWrite write = pending.get(key);
+            if (write != null && !write.started)
+            {
+                write.content = write.content.then(content);
+                write.writer = writer;
+                return write.done;
+            }
+            write = new PendingWrite(key, content, writer);
+            pending.put(key, write);
+            queue.add(write);
+            return write.done;
+        }
+    }
+
+    private static void writeLoop()
+    {
+        while (true)
+        {
+            PendingWrite write = queue.poll();
+            if (write == null)
+            {
+                // nothing else to write for now, so it's a good time to write out modified zip files
+                ZipFileSystems.closeIdle();
+                try
+                {
+                    write = queue.poll(1, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException ignored)
+                {
+                    return;
+                }
+                if (write == null)
+                {
+                    continue;
+                }
+            }
+            Content content;
+            Function<Content, Boolean> writer;
+            synchronized (pending)
+            {
+                write.started = true;
+                content = write.content;
+                writer = write.writer;
+            }
+            try
+            {
+                write.done.complete(writer.apply(content));
+            }
+            catch (RuntimeException e)
+            {
+                CarpetScriptServer.LOG.warn("Failed to write " + write.key, e);
+                write.done.completeExceptionally(e);
+            }
+            finally
+            {
+                synchronized (pending)
+                {
+                    pending.remove(write.key, write);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return latest content waiting to be written to the file, or null if there is none
+     */
+    @Nullable
+    public static Content pending(String key)
+    {
+        synchronized (pending)
+        {
+            PendingWrite write = pending.get(key);
+            return write == null ? null : write.content;
+        }
+    }
+
+    /**
+     * Waits until pending writes to the file, if any, are done
+     */
+    public static void await(String key)
+    {
+        CompletableFuture<Boolean> done;
+        synchronized (pending)
+        {
+            PendingWrite write = pending.get(key);
+            if (write == null)
+            {
+                return;
+            }
+            done = write.done;
+        }
+        done.handle((r, e) -> r).join();
+    }
+
+    /**
+     * Waits until pending writes to all files within a folder are done
+     */
+    public static void awaitFolder(String prefix)
+    {
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        synchronized (pending)
+        {
+            pending.forEach((key, write) -> {
+                if (key.startsWith(prefix))
+                {
+                    writes.add(write.done);
+                }
+            });
+        }
+        writes.forEach(done -> done.handle((r, e) -> r).join());
+    }
+
+    /**
+     * Waits until all pending writes are done
+     */
+    public static void flush()
+    {
+        awaitFolder("");
+    }
+
+    /**
+     * Waits for a write to finish, rethrowing exceptions thrown while writing
+     */
+    public static boolean join(CompletableFuture<Boolean> write)
+    {
+        try
+        {
+            return write.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof final RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
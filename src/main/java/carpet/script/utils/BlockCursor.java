@@ -0,0 +1,135 @@
+package carpet.script.utils;
+
+import carpet.script.value.BlockValue;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+import javax.annotation.Nullable;
+
+/**
+ * Mutable position walking over blocks of a region. Remembers the chunk and the chunk section of the last position,
+ * so consecutive positions within the same section don't go through the chunk source, and creates a block value
+ * for the current position only when it is requested.
+ */
+public class BlockCursor
+{
+    private final ServerLevel level;
+    private final BlockPos origin;
+    private int x;
+    private int y;
+    private int z;
+    @Nullable
+    private BlockValue current = null;
+    private long chunkKey = Long.MAX_VALUE;
+    @Nullable
+    private LevelChunk chunk = null;
+    private long sectionKey = Long.MAX_VALUE;
+    @Nullable
+    private LevelChunkSection section = null;
+
+    /**
+     * @param origin offset added to cursor coordinates to get the world position
+     */
+    public BlockCursor(ServerLevel level, BlockPos origin)
+    {
+        this.level = level;
+        this.origin = origin;
+    }
+
+    public void set(int x, int y, int z)
+    {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        current = null;
+    }
+
+    public int x()
+    {
+        return x;
+    }
+
+    public int y()
+    {
+        return y;
+    }
+
+    public int z()
+    {
+        return z;
+    }
+
+    /**
+     * @return block value at the current position, the same instance until the cursor moves
+     */
+    public BlockValue blockValue()
+    {
+        if (current == null)
+        {
+            int wx = origin.getX() + x;
+            int wy = origin.getY() + y;
+            int wz = origin.getZ() + z;
+            LevelChunkSection blockSection = sectionAt(wx, wy, wz);
+            current = blockSection == null
+                    ? new BlockValue(Blocks.VOID_AIR.defaultBlockState(), level, new BlockPos(wx, wy, wz))
+                    : new SectionBlockValue(level, new BlockPos(wx, wy, wz), blockSection);
+        }
+        return current;
+    }
+
+    @Nullable
+    private LevelChunkSection sectionAt(int wx, int wy, int wz)
+    {
+        if (level.isOutsideBuildHeight(wy))
+        {
+            return null;
+        }
+        long key = SectionPos.asLong(wx >> 4, wy >> 4, wz >> 4);
+        if (key != sectionKey)
+        {
+            long columnKey = ChunkPos.asLong(wx >> 4, wz >> 4);
+            if (columnKey != chunkKey)
+            {
+                chunk = level.getChunk(wx >> 4, wz >> 4);
+                chunkKey = columnKey;
+            }
+            section = chunk.getSection(level.getSectionIndex(wy));
+            sectionKey = key;
+        }
+        return section;
+    }
+
+    /**
+     * Block value reading its state straight from the chunk section. The state is still read on first use,
+     * like for any other block value with a position, so changes done before that are visible
+     */
+    private static class SectionBlockValue extends BlockValue
+    {
+        private final LevelChunkSection section;
+        @Nullable
+        private BlockState state = null;
+
+        private SectionBlockValue(ServerLevel level, BlockPos pos, LevelChunkSection section)
+        {
+            super(level, pos);
+            this.section = section;
+        }
+
+        @Override
+        public BlockState getBlockState()
+        {
+            if (state == null)
+            {
+                BlockPos pos = getPos();
+                state = section.getBlockState(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+            }
+            return state;
+        }
+    }
+}
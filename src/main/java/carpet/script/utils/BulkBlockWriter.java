@@ -0,0 +1,130 @@
+package carpet.script.utils;
+
+import carpet.script.external.Carpet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.Clearable;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Places many blocks at once. Blocks are grouped by chunk section and written straight to their chunks, skipping
+ * the per-block notification path of {@link ServerLevel#setBlock}. Clients are updated through the chunk holders,
+ * which send a single section update per touched section at the end of the tick. Neighbour and shape updates are
+ * either skipped entirely, or fired once all blocks are placed.
+ */
+public class BulkBlockWriter
+{
+    public record Entry(BlockPos pos, BlockState state, @Nullable CompoundTag data)
+    {
+    }
+
+    private record Change(BlockPos pos, BlockState previous, BlockState state)
+    {
+    }
+
+    /**
+     * Has to be called on the main thread
+     *
+     * @param updates whether to fire block and shape updates after all blocks are placed
+     * @return number of changed blocks
+     */
+    public static int apply(ServerLevel level, Iterable<Entry> entries, boolean updates)
+    {
+        Long2ObjectLinkedOpenHashMap<List<Entry>> sections = new Long2ObjectLinkedOpenHashMap<>();
+        for (Entry entry : entries)
+        {
+            if (level.isOutsideBuildHeight(entry.pos()))
+            {
+                continue;
+            }
+            sections.computeIfAbsent(SectionPos.asLong(entry.pos()), k -> new ArrayList<>()).add(entry);
+        }
+        List<Change> changes = new ArrayList<>();
+        ThreadLocal<Boolean> skipUpdates = Carpet.getImpendingFillSkipUpdates();
+        boolean previousSkip = skipUpdates.get();
+        try
+        {
+            // suppresses side effects of blocks being placed or removed, so updates can't cascade mid-way
+            skipUpdates.set(!updates || previousSkip);
+            for (List<Entry> section : sections.values())
+            {
+                BlockPos first = section.get(0).pos();
+                LevelChunk chunk = level.getChunk(SectionPos.blockToSectionCoord(first.getX()), SectionPos.blockToSectionCoord(first.getZ()));
+                for (Entry entry : section)
+                {
+                    Change change = write(level, chunk, entry);
+                    if (change != null)
+                    {
+                        changes.add(change);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            skipUpdates.set(previousSkip);
+        }
+        if (updates)
+        {
+            for (Change change : changes)
+            {
+                level.blockUpdated(change.pos(), change.state().getBlock());
+                change.previous().updateIndirectNeighbourShapes(level, change.pos(), Block.UPDATE_CLIENTS);
+                change.state().updateNeighbourShapes(level, change.pos(), Block.UPDATE_CLIENTS);
+                change.state().updateIndirectNeighbourShapes(level, change.pos(), Block.UPDATE_CLIENTS);
+            }
+        }
+        return changes.size();
+    }
+
+    @Nullable
+    private static Change write(ServerLevel level, LevelChunk chunk, Entry entry)
+    {
+        BlockPos pos = entry.pos();
+        BlockState current = chunk.getBlockState(pos);
+        if (current == entry.state() && entry.data() == null)
+        {
+            return null;
+        }
+        if (current.hasBlockEntity())
+        {
+            Clearable.tryClear(chunk.getBlockEntity(pos));
+        }
+        BlockState previous = chunk.setBlockState(pos, entry.state(), false);
+        boolean changed = previous != null;
+        if (changed)
+        {
+            level.onBlockStateChange(pos, previous, entry.state());
+        }
+        if (entry.data() != null)
+        {
+            BlockEntity be = chunk.getBlockEntity(pos);
+            if (be != null)
+            {
+                CompoundTag destTag = entry.data().copy();
+                destTag.putInt("x", pos.getX());
+                destTag.putInt("y", pos.getY());
+                destTag.putInt("z", pos.getZ());
+                be.loadWithComponents(destTag, level.registryAccess());
+                be.setChanged();
+                changed = true;
+            }
+        }
+        if (!changed)
+        {
+            return null;
+        }
+        level.getChunkSource().blockChanged(pos);
+        return new Change(pos, previous == null ? current : previous, entry.state());
+    }
+}
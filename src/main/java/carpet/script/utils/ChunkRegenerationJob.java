@@ -0,0 +1,236 @@
+package carpet.script.utils;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.status.ChunkStatus;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Regeneration of a set of chunks, done in slices of a few chunks at a time. The chunk map advances each slice
+ * through its phases at the start of its tick, only doing the work that has to happen on the server thread,
+ * and checking on generation and lighting futures running on the worldgen executor without waiting for them.
+ * A job can be cancelled, which stops it before the next slice starts, since a slice that started replacing its
+ * chunks has to be finished to leave the world in a consistent state.
+ */
+public class ChunkRegenerationJob
+{
+    public enum Phase
+    {
+        /**
+         * Between slices
+         */
+        PENDING,
+        /**
+         * Waiting for chunks of the slice and their neighbours to load
+         */
+        LOADING,
+        /**
+         * Waiting for new chunks to generate, status by status
+         */
+        GENERATING,
+        /**
+         * Waiting for neighbours to be relit
+         */
+        RELIGHTING,
+        FINISHED
+    }
+
+    public static final int DEFAULT_SLICE_CHUNKS = 16;
+
+    private static final AtomicInteger nextId = new AtomicInteger();
+    private static final Map<Integer, ChunkRegenerationJob> running = new ConcurrentHashMap<>();
+
+    public final int id;
+    @Nullable
+    private Object owner;
+    private final Set<ChunkPos> remaining;
+    private final int total;
+    private final int sliceSize;
+    @Nullable
+    private final Consumer<ChunkRegenerationJob> listener;
+    private final Object2IntOpenHashMap<String> report = new Object2IntOpenHashMap<>();
+    private volatile boolean cancelled;
+    private int processed;
+
+    // state of the current slice, advanced by the chunk map
+    public Phase phase = Phase.PENDING;
+    public Set<ChunkPos> slice = Set.of();
+    public Set<ChunkPos> ticketed = Set.of();
+    public Set<ChunkPos> existing = Set.of();
+    public Set<ChunkPos> existingNeighbors = Set.of();
+    public Set<ChunkAccess> affectedNeighbors = Set.of();
+    public Map<ChunkPos, ChunkStatus> targets = Map.of();
+    public final Deque<Map.Entry<ChunkStatus, List<CompletableFuture<?>>>> layers = new ArrayDeque<>();
+    public List<? extends CompletableFuture<?>> pending = List.of();
+    public long phaseStart;
+
+    /**
+     * @param sliceSize number of requested chunks regenerated together
+     * @param listener  called on the server thread after each slice, and once the job is finished
+     */
+    public ChunkRegenerationJob(List<ChunkPos> requestedChunks, int sliceSize, @Nullable Consumer<ChunkRegenerationJob> listener)
+    {
+        this.id = nextId.incrementAndGet();
+        this.remaining = new LinkedHashSet<>(requestedChunks);
+        this.total = remaining.size();
+        this.sliceSize = Math.max(1, sliceSize);
+        this.listener = listener;
+    }
+
+    /**
+     * Makes the job available to {@link #cancel(int, Object)} until it finishes
+     *
+     * @param owner only one that can cancel the job, like the app that started it
+     */
+    public ChunkRegenerationJob register(Object owner)
+    {
+        this.owner = owner;
+        running.put(id, this);
+        return this;
+    }
+
+    /**
+     * @return false if there is no such job running, or it was started by someone else
+     */
+    public static boolean cancel(int id, Object owner)
+    {
+        ChunkRegenerationJob job = running.get(id);
+        if (job == null || job.owner != owner)
+        {
+            return false;
+        }
+        job.cancelled = true;
+        return true;
+    }
+
+    public static void cancelAll()
+    {
+        running.values().forEach(job -> job.cancelled = true);
+    }
+
+    /**
+     * @return chunks of the next slice, or nothing if the job is done or cancelled
+     */
+    public Set<ChunkPos> nextSlice()
+    {
+        if (cancelled)
+        {
+            return Set.of();
+        }
+        Set<ChunkPos> next = new LinkedHashSet<>();
+        var iterator = remaining.iterator();
+        while (iterator.hasNext() && next.size() < sliceSize)
+        {
+            next.add(iterator.next());
+            iterator.remove();
+        }
+        return next;
+    }
+
+    /**
+     * @return whether the chunk will be regenerated by one of the following slices
+     */
+    public boolean isRemaining(ChunkPos pos)
+    {
+        return remaining.contains(pos);
+    }
+
+    public void count(String key, int amount)
+    {
+        report.addTo(key, amount);
+    }
+
+    /**
+     * Clears the state of the slice that just got regenerated, and lets the listener know about it
+     */
+    public void finishSlice()
+    {
+        processed += slice.size();
+        slice = ticketed = existing = existingNeighbors = Set.of();
+        affectedNeighbors = Set.of();
+        targets = Map.of();
+        layers.clear();
+        pending = List.of();
+        phase = remaining.isEmpty() || cancelled ? Phase.FINISHED : Phase.PENDING;
+        if (phase == Phase.FINISHED)
+        {
+            running.remove(id);
+        }
+        if (listener != null)
+        {
+            listener.accept(this);
+        }
+    }
+
+    /**
+     * Ends a job that has nothing left to do
+     */
+    public void finish()
+    {
+        phase = Phase.FINISHED;
+        running.remove(id);
+        if (listener != null)
+        {
+            listener.accept(this);
+        }
+    }
+
+    public boolean isReady()
+    {
+        for (CompletableFuture<?> future : pending)
+        {
+            if (!future.isDone())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isFinished()
+    {
+        return phase == Phase.FINISHED;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    public int processedChunks()
+    {
+        return processed;
+    }
+
+    public int totalChunks()
+    {
+        return total;
+    }
+
+    public Map<String, Integer> report()
+    {
+        return new HashMap<>(report);
+    }
+
+    /**
+     * @return generation futures of the lowest status still being generated
+     */
+    public List<CompletableFuture<?>> currentLayer()
+    {
+        return layers.isEmpty() ? new ArrayList<>() : layers.peekFirst().getValue();
+    }
+}
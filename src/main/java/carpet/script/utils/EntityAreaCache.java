@@ -0,0 +1,138 @@
+package carpet.script.utils;
+
+import carpet.script.value.EntityValue;
+import carpet.script.value.Value;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.AABB;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Results of entity area queries, kept for the rest of the current tick, so apps polling the same areas many times
+ * per tick only search entity sections once. What's kept are all entities of the searched type from entity sections
+ * around the area, and each call picks the ones that are in the area and match the selector at that moment,
+ * so entities moving, or changing, within their section are always found correctly. Kept entities are dropped
+ * only for areas around sections that get a new entity. Entity values are interned for the tick as well,
+ * so the same entity found by different queries is represented by the same value.
+ */
+public class EntityAreaCache
+{
+    // vanilla looks for entities in sections this far from the area, for entities sticking out of their section
+    private static final double SECTION_MARGIN = 2.0;
+
+    private record Key(ResourceKey<Level> level, String descriptor, AABB sections)
+    {
+    }
+
+    private record SectionChange(ResourceKey<Level> level, long section)
+    {
+    }
+
+    private record Candidates(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, List<Entity> entities)
+    {
+        boolean contains(long section)
+        {
+            int x = SectionPos.x(section);
+            int y = SectionPos.y(section);
+            int z = SectionPos.z(section);
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+    }
+
+    // only noted while there is anything to drop
+    private static volatile boolean watching = false;
+    private static final Queue<SectionChange> changes = new ConcurrentLinkedQueue<>();
+
+    private final Map<Key, Candidates> results = new HashMap<>();
+    private final Map<Entity, EntityValue> interned = new Reference2ObjectOpenHashMap<>();
+    private long tick = -1;
+
+    /**
+     * Called when an entity is added to an entity section, either spawning, loading, or moving from another section.
+     * Can be called from any thread
+     */
+    public static void sectionChanged(Level level, long section)
+    {
+        if (watching)
+        {
+            changes.add(new SectionChange(level.dimension(), section));
+        }
+    }
+
+    /**
+     * @param search finds entities of the searched type in a box, without checking the selector predicate
+     */
+    public synchronized List<Value> getEntities(ServerLevel level, String descriptor, AABB area, Predicate<? super Entity> predicate, Function<AABB, List<? extends Entity>> search)
+    {
+        int now = level.getServer().getTickCount();
+        if (now != tick)
+        {
+            results.clear();
+            interned.clear();
+            changes.clear();
+            tick = now;
+        }
+        dropChanged();
+        int minX = SectionPos.posToSectionCoord(area.minX - SECTION_MARGIN);
+        int minY = SectionPos.posToSectionCoord(area.minY - SECTION_MARGIN);
+        int minZ = SectionPos.posToSectionCoord(area.minZ - SECTION_MARGIN);
+        int maxX = SectionPos.posToSectionCoord(area.maxX + SECTION_MARGIN);
+        int maxY = SectionPos.posToSectionCoord(area.maxY + SECTION_MARGIN);
+        int maxZ = SectionPos.posToSectionCoord(area.maxZ + SECTION_MARGIN);
+        AABB sections = new AABB(
+                SectionPos.sectionToBlockCoord(minX), SectionPos.sectionToBlockCoord(minY), SectionPos.sectionToBlockCoord(minZ),
+                SectionPos.sectionToBlockCoord(maxX + 1), SectionPos.sectionToBlockCoord(maxY + 1), SectionPos.sectionToBlockCoord(maxZ + 1)
+        );
+        Key key = new Key(level.dimension(), descriptor, sections);
+        Candidates candidates = results.get(key);
+        if (candidates == null)
+        {
+            // before searching, so entities added during the search drop the result
+            watching = true;
+            // every entity in these sections has its position, so its box, in there
+            candidates = new Candidates(minX, minY, minZ, maxX, maxY, maxZ, new ArrayList<>(search.apply(sections)));
+            results.put(key, candidates);
+        }
+        List<Value> found = new ArrayList<>();
+        for (Entity entity : candidates.entities())
+        {
+            if (!entity.isRemoved() && entity.getBoundingBox().intersects(area) && predicate.test(entity))
+            {
+                found.add(interned.computeIfAbsent(entity, EntityValue::shared));
+            }
+        }
+        return found;
+    }
+
+    private void dropChanged()
+    {
+        SectionChange change;
+        while ((change = changes.poll()) != null)
+        {
+            SectionChange changed = change;
+            results.entrySet().removeIf(e -> e.getKey().level() == changed.level() && e.getValue().contains(changed.section()));
+        }
+        watching = !results.isEmpty();
+    }
+
+    public synchronized void clear()
+    {
+        results.clear();
+        interned.clear();
+        changes.clear();
+        watching = false;
+        tick = -1;
+    }
+}
@@ -0,0 +1,83 @@
+package carpet.script.utils;
+
+import carpet.script.value.MapValue;
+import carpet.script.value.NumericValue;
+import carpet.script.value.StringValue;
+import carpet.script.value.Value;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of things parsed from strings used by scripts, like blocks, items, NBT paths and selectors.
+ * Safe to use from task threads. Least recently used entries are evicted once the cache is full, and hits and misses
+ * are counted, so they can be checked with {@code system_info('scarpet_caches')}.
+ *
+ * @param <V> type of parsed values
+ */
+public class ParseCache<V>
+{
+    @FunctionalInterface
+    public interface Parser<V>
+    {
+        /**
+         * @return parsed value, or null if it can't be parsed, which is not cached
+         */
+        @Nullable
+        V parse(String input) throws CommandSyntaxException;
+    }
+
+    private static final Map<String, ParseCache<?>> caches = new ConcurrentHashMap<>();
+
+    private final Cache<String, V> cache;
+
+    public ParseCache(String name, long maximumSize)
+    {
+        cache = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+        caches.put(name, this);
+    }
+
+    @Nullable
+    public V get(String input, Parser<V> parser) throws CommandSyntaxException
+    {
+        V value = cache.getIfPresent(input);
+        if (value == null)
+        {
+            value = parser.parse(input);
+            if (value != null)
+            {
+                cache.put(input, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops everything parsed so far, since it may refer to registry content that can change on reloads
+     */
+    public static void clearAll()
+    {
+        caches.values().forEach(c -> c.cache.invalidateAll());
+    }
+
+    public static Value stats()
+    {
+        Map<Value, Value> result = new HashMap<>();
+        caches.forEach((name, c) -> {
+            CacheStats stats = c.cache.stats();
+            result.put(StringValue.of(name), MapValue.wrap(Map.of(
+                    StringValue.of("size"), NumericValue.of(c.cache.size()),
+                    StringValue.of("hits"), NumericValue.of(stats.hitCount()),
+                    StringValue.of("misses"), NumericValue.of(stats.missCount()),
+                    StringValue.of("evictions"), NumericValue.of(stats.evictionCount())
+            )));
+        });
+        return MapValue.wrap(result);
+    }
+}
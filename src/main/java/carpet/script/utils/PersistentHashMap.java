@@ -0,0 +1,483 @@
+package carpet.script.utils;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Hash map backed by a hash array mapped trie, sharing structure with its snapshots. Taking a snapshot takes constant
+ * time, and lookups and updates take O(log32 n). After a snapshot, changes to either map only copy the trie nodes
+ * on the path to the changed entry. Nodes that are not shared are changed in place.
+ * Iterators go over the content from the moment they were created, so the map can be freely changed while iterating.
+ * Doesn't support null keys.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V>
+{
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Node indexed by 5 bits of key hashes. Array holds a key and a value for each entry,
+     * or null and a child node for subtrees of keys sharing the same bits
+     */
+    private static final class Node
+    {
+        private final Object owner;
+        private int bitmap;
+        private Object[] array;
+
+        private Node(Object owner, int bitmap, Object[] array)
+        {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit)
+        {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * Keys with exactly the same hash, stored as key and value pairs
+     */
+    private static final class Collision
+    {
+        private final Object owner;
+        private final int hash;
+        private Object[] array;
+
+        private Collision(Object owner, int hash, Object[] array)
+        {
+            this.owner = owner;
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int find(Object key)
+        {
+            for (int i = 0; i < array.length; i += 2)
+            {
+                if (array[i].equals(key))
+                {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final Object[] EMPTY = new Object[0];
+    private static final Object NOT_FOUND = new Object();
+
+    // nodes created by this map, and not shared with any snapshot, can be modified in place
+    private Object owner = new Object();
+    private Node root;
+    private int size;
+    // results of the last update
+    private boolean sizeChanged;
+    private Object previous;
+
+    public PersistentHashMap()
+    {
+        root = new Node(owner, 0, EMPTY);
+    }
+
+    public PersistentHashMap(Map<? extends K, ? extends V> other)
+    {
+        this();
+        putAll(other);
+    }
+
+    private PersistentHashMap(Node root, int size)
+    {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return map with the same content, which can be changed independently of this map
+     */
+    public PersistentHashMap<K, V> snapshot()
+    {
+        // from now on, all current nodes are shared
+        owner = new Object();
+        return new PersistentHashMap<>(root, size);
+    }
+
+    private static int hash(Object key)
+    {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        root = new Node(owner, 0, EMPTY);
+        size = 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return key != null && find(root, 0, hash(key), key) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        Object value = find(root, 0, hash(key), key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    private static Object find(Object node, int shift, int hash, Object key)
+    {
+        while (true)
+        {
+            if (node instanceof Collision collision)
+            {
+                int i = collision.find(key);
+                return i < 0 ? NOT_FOUND : collision.array[i + 1];
+            }
+            Node bitmapNode = (Node) node;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmapNode.bitmap & bit) == 0)
+            {
+                return NOT_FOUND;
+            }
+            int i = 2 * bitmapNode.index(bit);
+            Object k = bitmapNode.array[i];
+            if (k == null)
+            {
+                node = bitmapNode.array[i + 1];
+                shift += BITS;
+                continue;
+            }
+            return k.equals(key) ? bitmapNode.array[i + 1] : NOT_FOUND;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value)
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("Null keys are not supported");
+        }
+        sizeChanged = false;
+        previous = null;
+        root = (Node) put(root, 0, hash(key), key, value);
+        if (sizeChanged)
+        {
+            size++;
+        }
+        return (V) previous;
+    }
+
+    private Object put(Object node, int shift, int hash, Object key, Object value)
+    {
+        if (node instanceof Collision collision)
+        {
+            if (collision.hash != hash)
+            {
+                // different key ended up here, so there needs to be a level telling them apart
+                Node parent = new Node(owner, 1 << ((collision.hash >>> shift) & MASK), new Object[]{null, collision});
+                return put(parent, shift, hash, key, value);
+            }
+            int i = collision.find(key);
+            Collision editable = collision.owner == owner ? collision : new Collision(owner, hash, collision.array.clone());
+            if (i >= 0)
+            {
+                previous = editable.array[i + 1];
+                editable.array[i + 1] = value;
+                return editable;
+            }
+            Object[] array = new Object[editable.array.length + 2];
+            System.arraycopy(editable.array, 0, array, 0, editable.array.length);
+            array[array.length - 2] = key;
+            array[array.length - 1] = value;
+            editable.array = array;
+            sizeChanged = true;
+            return editable;
+        }
+        Node bitmapNode = (Node) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int i = 2 * bitmapNode.index(bit);
+        if ((bitmapNode.bitmap & bit) == 0)
+        {
+            Node editable = editable(bitmapNode);
+            Object[] array = new Object[editable.array.length + 2];
+            System.arraycopy(editable.array, 0, array, 0, i);
+            array[i] = key;
+            array[i + 1] = value;
+            System.arraycopy(editable.array, i, array, i + 2, editable.array.length - i);
+            editable.array = array;
+            editable.bitmap |= bit;
+            sizeChanged = true;
+            return editable;
+        }
+        Object k = bitmapNode.array[i];
+        Object v = bitmapNode.array[i + 1];
+        if (k == null)
+        {
+            Object child = put(v, shift + BITS, hash, key, value);
+            if (child == v)
+            {
+                return bitmapNode;
+            }
+            Node editable = editable(bitmapNode);
+            editable.array[i + 1] = child;
+            return editable;
+        }
+        if (k.equals(key))
+        {
+            previous = v;
+            if (v == value)
+            {
+                return bitmapNode;
+            }
+            Node editable = editable(bitmapNode);
+            editable.array[i + 1] = value;
+            return editable;
+        }
+        Node editable = editable(bitmapNode);
+        editable.array[i] = null;
+        editable.array[i + 1] = split(shift + BITS, k, v, hash, key, value);
+        sizeChanged = true;
+        return editable;
+    }
+
+    private Object split(int shift, Object key1, Object value1, int hash2, Object key2, Object value2)
+    {
+        int hash1 = hash(key1);
+        if (hash1 == hash2)
+        {
+            return new Collision(owner, hash1, new Object[]{key1, value1, key2, value2});
+        }
+        Object node = put(new Node(owner, 0, EMPTY), shift, hash1, key1, value1);
+        return put(node, shift, hash2, key2, value2);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        sizeChanged = false;
+        previous = null;
+        Object newRoot = remove(root, 0, hash(key), key);
+        root = newRoot == null ? new Node(owner, 0, EMPTY) : (Node) newRoot;
+        if (sizeChanged)
+        {
+            size--;
+        }
+        return (V) previous;
+    }
+
+    /**
+     * @return node without the key, or null if the node is left empty
+     */
+    private Object remove(Object node, int shift, int hash, Object key)
+    {
+        if (node instanceof Collision collision)
+        {
+            int i = collision.find(key);
+            if (i < 0)
+            {
+                return collision;
+            }
+            sizeChanged = true;
+            previous = collision.array[i + 1];
+            if (collision.array.length == 2)
+            {
+                return null;
+            }
+            return new Collision(owner, hash, without(collision.array, i));
+        }
+        Node bitmapNode = (Node) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        if ((bitmapNode.bitmap & bit) == 0)
+        {
+            return bitmapNode;
+        }
+        int i = 2 * bitmapNode.index(bit);
+        Object k = bitmapNode.array[i];
+        Object v = bitmapNode.array[i + 1];
+        if (k == null)
+        {
+            Object child = remove(v, shift + BITS, hash, key);
+            if (child == v)
+            {
+                return bitmapNode;
+            }
+            if (child != null)
+            {
+                Node editable = editable(bitmapNode);
+                editable.array[i + 1] = child;
+                return editable;
+            }
+        }
+        else if (!k.equals(key))
+        {
+            return bitmapNode;
+        }
+        else
+        {
+            sizeChanged = true;
+            previous = v;
+        }
+        if (bitmapNode.bitmap == bit)
+        {
+            return null;
+        }
+        Node editable = editable(bitmapNode);
+        editable.array = without(editable.array, i);
+        editable.bitmap ^= bit;
+        return editable;
+    }
+
+    private static Object[] without(Object[] array, int i)
+    {
+        Object[] result = new Object[array.length - 2];
+        System.arraycopy(array, 0, result, 0, i);
+        System.arraycopy(array, i + 2, result, i, array.length - i - 2);
+        return result;
+    }
+
+    private Node editable(Node node)
+    {
+        return node.owner == owner ? node : new Node(owner, node.bitmap, node.array.clone());
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<Entry<K, V>> iterator()
+            {
+                // iterating over current nodes, so they can't change anymore
+                owner = new Object();
+                return new EntryIterator(root);
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>>
+    {
+        // 7 levels of nodes, and a collision
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = 0;
+        private Entry<K, V> next = null;
+        private K last = null;
+
+        private EntryIterator(Node root)
+        {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance()
+        {
+            next = null;
+            while (depth >= 0)
+            {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length)
+                {
+                    depth--;
+                    continue;
+                }
+                positions[depth] += 2;
+                Object key = array[position];
+                Object value = array[position + 1];
+                if (key != null)
+                {
+                    next = new MapEntry((K) key, (V) value);
+                    return;
+                }
+                depth++;
+                arrays[depth] = value instanceof Collision collision ? collision.array : ((Node) value).array;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> result = next;
+            last = result.getKey();
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (last == null)
+            {
+                throw new IllegalStateException();
+            }
+            PersistentHashMap.this.remove(last);
+            last = null;
+        }
+    }
+
+    private class MapEntry extends SimpleEntry<K, V>
+    {
+        private MapEntry(K key, V value)
+        {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value)
+        {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package carpet.script.utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * List backed by a 32-way trie with a separate tail, sharing structure with its snapshots. Taking a snapshot takes
+ * constant time, reads and updates take O(log32 n), and appending takes amortized constant time. After a snapshot,
+ * changes to either list only copy the trie nodes on the path to the changed element. Nodes that are not shared
+ * are changed in place. Inserting or removing anywhere but at the end shifts the following elements, like in an
+ * array list.
+ *
+ * @param <E> type of elements
+ */
+public class PersistentVector<E> extends AbstractList<E> implements RandomAccess
+{
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final class Node
+    {
+        private final Object owner;
+        private final Object[] array;
+
+        private Node(Object owner, Object[] array)
+        {
+            this.owner = owner;
+            this.array = array;
+        }
+    }
+
+    // nodes created by this list, and not shared with any snapshot, can be modified in place
+    private Object owner = new Object();
+    private int size;
+    private int shift;
+    private Node root;
+    private Object[] tail;
+    private boolean tailShared;
+
+    public PersistentVector()
+    {
+        clear();
+    }
+
+    public PersistentVector(Collection<? extends E> elements)
+    {
+        this();
+        addAll(elements);
+    }
+
+    private PersistentVector(PersistentVector<E> other)
+    {
+        size = other.size;
+        shift = other.shift;
+        root = other.root;
+        tail = other.tail;
+        tailShared = true;
+    }
+
+    /**
+     * @return list with the same content, which can be changed independently of this list
+     */
+    public PersistentVector<E> snapshot()
+    {
+        PersistentVector<E> copy = new PersistentVector<>(this);
+        // from now on, all current nodes are shared
+        owner = new Object();
+        tailShared = true;
+        return copy;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        shift = BITS;
+        root = new Node(owner, new Object[WIDTH]);
+        tail = new Object[WIDTH];
+        tailShared = false;
+        modCount++;
+    }
+
+    private int tailOffset()
+    {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] leafFor(int index)
+    {
+        if (index >= tailOffset())
+        {
+            return tail;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS)
+        {
+            node = (Node) node.array[(index >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index)
+    {
+        Objects.checkIndex(index, size);
+        return (E) leafFor(index)[index & MASK];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E set(int index, E element)
+    {
+        Objects.checkIndex(index, size);
+        Object[] leaf;
+        if (index >= tailOffset())
+        {
+            leaf = editableTail();
+        }
+        else
+        {
+            root = editable(root);
+            Node node = root;
+            for (int level = shift; level > 0; level -= BITS)
+            {
+                int child = (index >>> level) & MASK;
+                Node editableChild = editable((Node) node.array[child]);
+                node.array[child] = editableChild;
+                node = editableChild;
+            }
+            leaf = node.array;
+        }
+        E previous = (E) leaf[index & MASK];
+        leaf[index & MASK] = element;
+        return previous;
+    }
+
+    @Override
+    public boolean add(E element)
+    {
+        if (size - tailOffset() < WIDTH)
+        {
+            editableTail()[size - tailOffset()] = element;
+        }
+        else
+        {
+            Node tailNode = new Node(owner, tailShared ? tail.clone() : tail);
+            if ((size >>> BITS) > (1 << shift))
+            {
+                Node newRoot = new Node(owner, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            }
+            else
+            {
+                root = pushTail(shift, editable(root), tailNode);
+            }
+            tail = new Object[WIDTH];
+            tail[0] = element;
+            tailShared = false;
+        }
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, E element)
+    {
+        if (index == size)
+        {
+            add(element);
+            return;
+        }
+        Objects.checkIndex(index, size);
+        add(get(size - 1));
+        for (int i = size - 2; i > index; i--)
+        {
+            set(i, get(i - 1));
+        }
+        set(index, element);
+    }
+
+    @Override
+    public E remove(int index)
+    {
+        Objects.checkIndex(index, size);
+        E removed = get(index);
+        for (int i = index; i < size - 1; i++)
+        {
+            set(i, get(i + 1));
+        }
+        removeLast();
+        return removed;
+    }
+
+    private void removeLast()
+    {
+        modCount++;
+        if (size == 1)
+        {
+            clear();
+            return;
+        }
+        if (size - tailOffset() > 1)
+        {
+            editableTail()[size - 1 - tailOffset()] = null;
+            size--;
+            return;
+        }
+        Object[] newTail = Arrays.copyOf(leafFor(size - 2), WIDTH);
+        Node newRoot = popTail(shift, editable(root));
+        if (newRoot == null)
+        {
+            newRoot = new Node(owner, new Object[WIDTH]);
+        }
+        if (shift > BITS && newRoot.array[1] == null)
+        {
+            newRoot = (Node) newRoot.array[0];
+            shift -= BITS;
+        }
+        root = newRoot;
+        tail = newTail;
+        tailShared = false;
+        size--;
+    }
+
+    private Object[] editableTail()
+    {
+        if (tailShared)
+        {
+            tail = tail.clone();
+            tailShared = false;
+        }
+        return tail;
+    }
+
+    private Node editable(Node node)
+    {
+        return node.owner == owner ? node : new Node(owner, node.array.clone());
+    }
+
+    private Node newPath(int level, Node node)
+    {
+        if (level == 0)
+        {
+            return node;
+        }
+        Node path = new Node(owner, new Object[WIDTH]);
+        path.array[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+    private Node pushTail(int level, Node parent, Node tailNode)
+    {
+        int child = ((size - 1) >>> level) & MASK;
+        if (level == BITS)
+        {
+            parent.array[child] = tailNode;
+        }
+        else
+        {
+            Node existing = (Node) parent.array[child];
+            parent.array[child] = existing != null
+                    ? pushTail(level - BITS, editable(existing), tailNode)
+                    : newPath(level - BITS, tailNode);
+        }
+        return parent;
+    }
+
+    private Node popTail(int level, Node node)
+    {
+        int child = ((size - 2) >>> level) & MASK;
+        if (level > BITS)
+        {
+            Node newChild = popTail(level - BITS, editable((Node) node.array[child]));
+            if (newChild == null && child == 0)
+            {
+                return null;
+            }
+            node.array[child] = newChild;
+            return node;
+        }
+        if (child == 0)
+        {
+            return null;
+        }
+        node.array[child] = null;
+        return node;
+    }
+}
@@ -0,0 +1,147 @@
+package carpet.script.utils;
+
+import net.minecraft.world.level.ChunkPos;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of chunks saved in region files, shared by the whole server. The first time a region is asked about, only the
+ * location table at the start of its file is read, and chunks having a location are kept as a bit set. From then on,
+ * checking if a chunk exists doesn't touch the disk, and saving or removing chunks keeps the index up to date.
+ */
+public class RegionIndex
+{
+    private static final int CHUNKS = 32 * 32;
+    private static final int LOCATIONS_BYTES = CHUNKS * 4;
+
+    private static final Map<Path, Region> regions = new ConcurrentHashMap<>();
+
+    /**
+     * Chunks of a single region file. Until the location table is read, chunks saved or removed in the meantime
+     * are noted, and applied on top of the table once it's read, so no update is lost to a read in progress.
+     */
+    private static final class Region
+    {
+        @Nullable
+        private BitSet chunks = null;
+        private final BitSet changed = new BitSet(CHUNKS);
+        private final BitSet changedPresent = new BitSet(CHUNKS);
+
+        private synchronized void set(int index, boolean present)
+        {
+            if (chunks != null)
+            {
+                chunks.set(index, present);
+                return;
+            }
+            changed.set(index);
+            changedPresent.set(index, present);
+        }
+
+        private synchronized BitSet publish(BitSet read)
+        {
+            if (chunks == null)
+            {
+                read.andNot(changed);
+                read.or(changedPresent);
+                chunks = read;
+                changed.clear();
+                changedPresent.clear();
+            }
+            return chunks;
+        }
+    }
+
+    public static String fileName(ChunkPos pos)
+    {
+        return "r." + pos.getRegionX() + "." + pos.getRegionZ() + ".mca";
+    }
+
+    private static int index(ChunkPos pos)
+    {
+        return pos.getRegionLocalX() + pos.getRegionLocalZ() * 32;
+    }
+
+    /**
+     * @param regionsFolder folder with region files
+     * @return whether the chunk is saved, or null if its region file can't be read
+     */
+    @Nullable
+    public static Boolean hasChunk(Path regionsFolder, ChunkPos pos)
+    {
+        Path file = regionsFolder.resolve(fileName(pos));
+        Region region = regions.computeIfAbsent(file, f -> new Region());
+        synchronized (region)
+        {
+            if (region.chunks != null)
+            {
+                return region.chunks.get(index(pos));
+            }
+        }
+        // reading without holding any locks, concurrent checks of the same region may read it twice
+        BitSet read = read(file);
+        if (read == null)
+        {
+            return null;
+        }
+        synchronized (region)
+        {
+            return region.publish(read).get(index(pos));
+        }
+    }
+
+    @Nullable
+    private static BitSet read(Path file)
+    {
+        BitSet chunks = new BitSet(CHUNKS);
+        if (!Files.exists(file))
+        {
+            return chunks;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            ByteBuffer locations = ByteBuffer.allocate(LOCATIONS_BYTES);
+            while (locations.hasRemaining() && channel.read(locations, locations.position()) > 0)
+            {
+                // reading until the table is complete, or the file ends
+            }
+            locations.flip();
+            for (int i = 0; i < locations.limit() / 4; i++)
+            {
+                if (locations.getInt(i * 4) != 0)
+                {
+                    chunks.set(i);
+                }
+            }
+            return chunks;
+        }
+        catch (IOException ignored)
+        {
+            // not publishing, next check will try again
+            return null;
+        }
+    }
+
+    /**
+     * Updates the index after a chunk was saved to, or removed from a region file
+     */
+    public static void update(Path regionsFolder, ChunkPos pos, boolean present)
+    {
+        // noted even if the region is still being read
+        regions.computeIfAbsent(regionsFolder.resolve(fileName(pos)), f -> new Region()).set(index(pos), present);
+    }
+
+    public static void clear()
+    {
+        regions.clear();
+    }
+}
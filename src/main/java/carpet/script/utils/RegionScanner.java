@@ -0,0 +1,339 @@
+package carpet.script.utils;
+
+import carpet.script.exception.InternalExpressionException;
+import carpet.script.exception.ThrowStatement;
+import carpet.script.exception.Throwables;
+import carpet.script.value.ListValue;
+import carpet.script.value.MapValue;
+import carpet.script.value.NumericValue;
+import carpet.script.value.StringValue;
+import carpet.script.value.Value;
+import carpet.script.value.ValueConversions;
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.datafixers.util.Either;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.commands.arguments.blocks.BlockStateParser;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.core.SectionPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.block.state.properties.Property;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import static carpet.script.value.NBTSerializableValue.nameFromResource;
+
+/**
+ * Read-only scans of large regions, done away from the main thread.
+ * Block states of loaded chunk sections overlapping with the region are copied on the main thread,
+ * and the copies are then processed section by section in the fork-join pool. Chunks that are not loaded are skipped.
+ * Sections whose palette doesn't contain any matching state are skipped without looking at their blocks.
+ */
+public class RegionScanner
+{
+    public enum Reduction
+    {
+        COUNT, POSITIONS, BLOCKS;
+
+        public static Reduction fromString(String name)
+        {
+            try
+            {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            }
+            catch (IllegalArgumentException ignored)
+            {
+                throw new InternalExpressionException("Unknown scan reduction: " + name + ", use 'count', 'positions' or 'blocks'");
+            }
+        }
+    }
+
+    /**
+     * Largest region that can be scanned at once, enough for full height columns of 16 by 16 chunks,
+     * so no single scan can stall the server by walking through an arbitrarily large area
+     */
+    public static final long MAX_VOLUME = 1L << 25;
+
+    private record SectionSnapshot(int x, int y, int z, PalettedContainer<BlockState> states)
+    {
+    }
+
+    private final BoundingBox box;
+    private final Predicate<BlockState> predicate;
+    private final List<SectionSnapshot> sections = new ArrayList<>();
+
+    private RegionScanner(BoundingBox box, Predicate<BlockState> predicate)
+    {
+        this.box = box;
+        this.predicate = predicate;
+    }
+
+    public static boolean isTooLarge(BlockPos from, BlockPos to)
+    {
+        BoundingBox box = BoundingBox.fromCorners(from, to);
+        return (long) box.getXSpan() * box.getYSpan() * box.getZSpan() > MAX_VOLUME;
+    }
+
+    /**
+     * Takes copies of loaded sections in the region. Has to be called on the main thread
+     */
+    public static RegionScanner snapshot(ServerLevel level, BlockPos from, BlockPos to, Predicate<BlockState> predicate)
+    {
+        BoundingBox box = BoundingBox.fromCorners(from, to);
+        RegionScanner scanner = new RegionScanner(box, predicate);
+        int minSection = level.getMinSection();
+        int maxSection = level.getMaxSection() - 1;
+        for (int cx = SectionPos.blockToSectionCoord(box.minX()); cx <= SectionPos.blockToSectionCoord(box.maxX()); cx++)
+        {
+            for (int cz = SectionPos.blockToSectionCoord(box.minZ()); cz <= SectionPos.blockToSectionCoord(box.maxZ()); cz++)
+            {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+                if (chunk == null)
+                {
+                    continue;
+                }
+                int fromSection = Math.max(minSection, SectionPos.blockToSectionCoord(box.minY()));
+                int toSection = Math.min(maxSection, SectionPos.blockToSectionCoord(box.maxY()));
+                for (int cy = fromSection; cy <= toSection; cy++)
+                {
+                    PalettedContainer<BlockState> states = chunk.getSection(level.getSectionIndexFromSectionY(cy)).getStates();
+                    // no need to copy what can't contain anything we look for
+                    if (states.maybeHas(predicate))
+                    {
+                        scanner.sections.add(new SectionSnapshot(cx, cy, cz, states.copy()));
+                    }
+                }
+            }
+        }
+        return scanner;
+    }
+
+    public CompletableFuture<Value> reduce(Reduction reduction)
+    {
+        return CompletableFuture.supplyAsync(() -> switch (reduction)
+        {
+            case COUNT -> new NumericValue(sections.parallelStream().mapToLong(this::count).sum());
+            case POSITIONS -> ListValue.wrap(sections.parallelStream().flatMap(s -> positions(s).stream()).map(ValueConversions::of));
+            case BLOCKS -> {
+                Map<Value, Value> result = new HashMap<>();
+                sections.parallelStream().map(this::histogram).reduce(RegionScanner::merge).ifPresent(histogram ->
+                        histogram.object2LongEntrySet().forEach(e -> result.put(
+                                StringValue.of(nameFromResource(BuiltInRegistries.BLOCK.getKey(e.getKey()))),
+                                new NumericValue(e.getLongValue())
+                        )));
+                yield MapValue.wrap(result);
+            }
+        }, ForkJoinPool.commonPool());
+    }
+
+    private long count(SectionSnapshot section)
+    {
+        if (covers(section))
+        {
+            return countStates(section.states(), predicate);
+        }
+        long[] count = {0};
+        forEachMatching(section, (pos, state) -> count[0]++);
+        return count[0];
+    }
+
+    private List<BlockPos> positions(SectionSnapshot section)
+    {
+        List<BlockPos> positions = new ArrayList<>();
+        forEachMatching(section, (pos, state) -> positions.add(pos.immutable()));
+        return positions;
+    }
+
+    private Object2LongOpenHashMap<Block> histogram(SectionSnapshot section)
+    {
+        Object2LongOpenHashMap<Block> histogram = new Object2LongOpenHashMap<>();
+        if (covers(section))
+        {
+            section.states().count((state, count) -> {
+                if (predicate.test(state))
+                {
+                    histogram.addTo(state.getBlock(), count);
+                }
+            });
+            return histogram;
+        }
+        forEachMatching(section, (pos, state) -> histogram.addTo(state.getBlock(), 1));
+        return histogram;
+    }
+
+    private static Object2LongOpenHashMap<Block> merge(Object2LongOpenHashMap<Block> a, Object2LongOpenHashMap<Block> b)
+    {
+        b.object2LongEntrySet().forEach(e -> a.addTo(e.getKey(), e.getLongValue()));
+        return a;
+    }
+
+    private boolean covers(SectionSnapshot section)
+    {
+        int baseX = SectionPos.sectionToBlockCoord(section.x());
+        int baseY = SectionPos.sectionToBlockCoord(section.y());
+        int baseZ = SectionPos.sectionToBlockCoord(section.z());
+        return box.minX() <= baseX && box.maxX() >= baseX + 15
+                && box.minY() <= baseY && box.maxY() >= baseY + 15
+                && box.minZ() <= baseZ && box.maxZ() >= baseZ + 15;
+    }
+
+    /**
+     * Counts states matching the predicate in the entire section. Goes over the packed storage once, counting palette
+     * entries, and tests the predicate once per palette entry rather than once per block
+     */
+    private static long countStates(PalettedContainer<BlockState> states, Predicate<BlockState> predicate)
+    {
+        if (!states.maybeHas(predicate))
+        {
+            return 0;
+        }
+        long[] total = {0};
+        states.count((state, count) -> {
+            if (predicate.test(state))
+            {
+                total[0] += count;
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * Counts blocks matching the predicate in the loaded chunks of the region, directly on the live sections,
+     * without copying them. Has to be called on the main thread
+     */
+    public static long countNow(ServerLevel level, BlockPos from, BlockPos to, Predicate<BlockState> predicate)
+    {
+        BoundingBox box = BoundingBox.fromCorners(from, to);
+        RegionScanner scanner = new RegionScanner(box, predicate);
+        int minSection = Math.max(level.getMinSection(), SectionPos.blockToSectionCoord(box.minY()));
+        int maxSection = Math.min(level.getMaxSection() - 1, SectionPos.blockToSectionCoord(box.maxY()));
+        long total = 0;
+        for (int cx = SectionPos.blockToSectionCoord(box.minX()); cx <= SectionPos.blockToSectionCoord(box.maxX()); cx++)
+        {
+            for (int cz = SectionPos.blockToSectionCoord(box.minZ()); cz <= SectionPos.blockToSectionCoord(box.maxZ()); cz++)
+            {
+                LevelChunk chunk = level.getChunkSource().getChunkNow(cx, cz);
+                if (chunk == null)
+                {
+                    continue;
+                }
+                for (int cy = minSection; cy <= maxSection; cy++)
+                {
+                    PalettedContainer<BlockState> states = chunk.getSection(level.getSectionIndexFromSectionY(cy)).getStates();
+                    if (states.maybeHas(predicate))
+                    {
+                        total += scanner.count(new SectionSnapshot(cx, cy, cz, states));
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private interface MatchConsumer
+    {
+        void accept(BlockPos.MutableBlockPos pos, BlockState state);
+    }
+
+    private void forEachMatching(SectionSnapshot section, MatchConsumer consumer)
+    {
+        int baseX = SectionPos.sectionToBlockCoord(section.x());
+        int baseY = SectionPos.sectionToBlockCoord(section.y());
+        int baseZ = SectionPos.sectionToBlockCoord(section.z());
+        int minX = Math.max(box.minX(), baseX);
+        int minY = Math.max(box.minY(), baseY);
+        int minZ = Math.max(box.minZ(), baseZ);
+        int maxX = Math.min(box.maxX(), baseX + 15);
+        int maxY = Math.min(box.maxY(), baseY + 15);
+        int maxZ = Math.min(box.maxZ(), baseZ + 15);
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int y = minY; y <= maxY; y++)
+        {
+            for (int x = minX; x <= maxX; x++)
+            {
+                for (int z = minZ; z <= maxZ; z++)
+                {
+                    BlockState state = section.states().get(x & 15, y & 15, z & 15);
+                    if (predicate.test(state))
+                    {
+                        consumer.accept(pos.set(x, y, z), state);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a block predicate, the same way commands do, like {@code stone}, {@code #logs} or {@code oak_log[axis=y]}.
+     * Block data can't be checked on copied sections, so it isn't allowed.
+     */
+    public static Predicate<BlockState> parsePredicate(ServerLevel level, String input)
+    {
+        try
+        {
+            return parsePredicate(level.registryAccess().lookupOrThrow(Registries.BLOCK), new StringReader(input));
+        }
+        catch (CommandSyntaxException ignored)
+        {
+            throw new ThrowStatement(input, Throwables.UNKNOWN_BLOCK);
+        }
+    }
+
+    public static Predicate<BlockState> parsePredicate(HolderLookup<Block> blocks, StringReader reader) throws CommandSyntaxException
+    {
+        Either<BlockStateParser.BlockResult, BlockStateParser.TagResult> result = BlockStateParser.parseForTesting(blocks, reader, false);
+        return result.map(block -> {
+            Block target = block.blockState().getBlock();
+            Map<Property<?>, Comparable<?>> properties = block.properties();
+            return state -> {
+                if (!state.is(target))
+                {
+                    return false;
+                }
+                for (Map.Entry<Property<?>, Comparable<?>> property : properties.entrySet())
+                {
+                    if (!state.getValue(property.getKey()).equals(property.getValue()))
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            };
+        }, tag -> state -> {
+            if (!state.is(tag.tag()))
+            {
+                return false;
+            }
+            for (Map.Entry<String, String> property : tag.vagueProperties().entrySet())
+            {
+                Property<?> stateProperty = state.getBlock().getStateDefinition().getProperty(property.getKey());
+                if (stateProperty == null)
+                {
+                    return false;
+                }
+                Optional<?> value = stateProperty.getValue(property.getValue());
+                if (value.isEmpty() || !state.getValue(stateProperty).equals(value.get()))
+                {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+}
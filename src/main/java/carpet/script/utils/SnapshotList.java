@@ -0,0 +1,108 @@
+package carpet.script.utils;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List backing list values, shared by every value referring to the same list. It starts with a regular list, and
+ * switches to a {@link PersistentVector} the first time it is copied while large, so from then on copies are taken in
+ * constant time and share everything that doesn't change. The switch happens inside this list, so all values that
+ * share it keep seeing the same elements.
+ *
+ * @param <E> type of elements
+ */
+public class SnapshotList<E> extends AbstractList<E> implements RandomAccess
+{
+    private static final int PERSISTENT_THRESHOLD = 64;
+
+    private volatile List<E> list;
+
+    /**
+     * @param list list to wrap, which should no longer be changed directly
+     */
+    public SnapshotList(List<E> list)
+    {
+        this.list = list;
+    }
+
+    /**
+     * @return copy of the list that can be changed independently
+     */
+    public synchronized List<E> snapshot()
+    {
+        if (list instanceof PersistentVector<E> persistent)
+        {
+            return persistent.snapshot();
+        }
+        if (list.size() < PERSISTENT_THRESHOLD)
+        {
+            return new ArrayList<>(list);
+        }
+        PersistentVector<E> persistent = new PersistentVector<>(list);
+        list = persistent;
+        return persistent.snapshot();
+    }
+
+    @Override
+    public E get(int index)
+    {
+        return list.get(index);
+    }
+
+    @Override
+    public int size()
+    {
+        return list.size();
+    }
+
+    @Override
+    public E set(int index, E element)
+    {
+        return list.set(index, element);
+    }
+
+    @Override
+    public boolean add(E element)
+    {
+        modCount++;
+        return list.add(element);
+    }
+
+    @Override
+    public void add(int index, E element)
+    {
+        modCount++;
+        list.add(index, element);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> elements)
+    {
+        modCount++;
+        return list.addAll(elements);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> elements)
+    {
+        modCount++;
+        return list.addAll(index, elements);
+    }
+
+    @Override
+    public E remove(int index)
+    {
+        modCount++;
+        return list.remove(index);
+    }
+
+    @Override
+    public void clear()
+    {
+        modCount++;
+        list.clear();
+    }
+}
@@ -0,0 +1,212 @@
+package carpet.script.utils;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Map backing map values, shared by every value referring to the same map. It starts with a regular map, and
+ * switches to a {@link PersistentHashMap} the first time it is copied while large, so from then on copies are taken in
+ * constant time and share everything that doesn't change. The switch happens inside this map, so all values that
+ * share it keep seeing the same entries.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class SnapshotMap<K, V> implements Map<K, V>
+{
+    private static final int PERSISTENT_THRESHOLD = 32;
+
+    private volatile Map<K, V> map;
+
+    /**
+     * @param map map to wrap, which should no longer be changed directly
+     */
+    public SnapshotMap(Map<K, V> map)
+    {
+        this.map = map;
+    }
+
+    /**
+     * @return copy of the map that can be changed independently
+     */
+    public synchronized Map<K, V> snapshot()
+    {
+        if (map instanceof PersistentHashMap<K, V> persistent)
+        {
+            return persistent.snapshot();
+        }
+        if (map.size() < PERSISTENT_THRESHOLD)
+        {
+            return new HashMap<>(map);
+        }
+        PersistentHashMap<K, V> persistent = new PersistentHashMap<>(map);
+        map = persistent;
+        return persistent.snapshot();
+    }
+
+    /**
+     * @return keys as they are now, unaffected by later changes to the map
+     */
+    public Collection<K> keysSnapshot()
+    {
+        Map<K, V> current = map;
+        // persistent maps iterate over what they contained at the start anyways
+        return current instanceof PersistentHashMap ? current.keySet() : new ArrayList<>(current.keySet());
+    }
+
+    @Override
+    public int size()
+    {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        return map.containsValue(value);
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        return map.get(key);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue)
+    {
+        return map.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public V put(K key, V value)
+    {
+        return map.put(key, value);
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        return map.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> other)
+    {
+        map.putAll(other);
+    }
+
+    @Override
+    public void clear()
+    {
+        map.clear();
+    }
+
+    // views follow the map even after it switched to a persistent one
+
+    @Override
+    public Set<K> keySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<K> iterator()
+            {
+                return map.keySet().iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return map.size();
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return map.containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    public Collection<V> values()
+    {
+        return new AbstractCollection<>()
+        {
+            @Override
+            public Iterator<V> iterator()
+            {
+                return map.values().iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return map.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public Iterator<Entry<K, V>> iterator()
+            {
+                return map.entrySet().iterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return map.size();
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action)
+    {
+        map.forEach(action);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        return o == this || map.equals(o);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return map.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return map.toString();
+    }
+}
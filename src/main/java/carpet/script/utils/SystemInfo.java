@@ -43,6 +43,16 @@ public class SystemInfo
         put("app_list", c -> ListValue.wrap(((CarpetScriptHost) c.host).scriptServer().modules.keySet().stream().filter(Objects::nonNull).map(StringValue::new)));
         put("app_scope", c -> StringValue.of((c.host).isPerUser() ? "player" : "global"));
         put("app_players", c -> ListValue.wrap(c.host.getUserList().stream().map(StringValue::new)));
+        put("app_tasks", c -> {
+            Map<Value, Value> executors = new HashMap<>();
+            c.host.executors().forEach((pool, executor) -> executors.put(pool, MapValue.wrap(Map.of(
+                    StringValue.of("active"), NumericValue.of(executor.activeCount()),
+                    StringValue.of("queued"), NumericValue.of(executor.queuedCount()),
+                    StringValue.of("completed"), NumericValue.of(executor.completedCount()),
+                    StringValue.of("rejected"), NumericValue.of(executor.rejectedCount())
+            ))));
+            return MapValue.wrap(executors);
+        });
 
         put("world_name", c -> new StringValue(c.server().getWorldData().getLevelName()));
         put("world_seed", c -> new NumericValue(c.level().getSeed()));
@@ -126,6 +136,7 @@ public class SystemInfo
         });
         put("server_dev_environment", c -> BooleanValue.of(Vanilla.isDevelopmentEnvironment()));
         put("server_mods", c -> Vanilla.getServerMods(c.server()));
+        put("server_tick_telemetry", c -> Carpet.getTickTelemetry());
         put("server_last_tick_times", c -> {
             //assuming we are in the tick world section
             // might be off one tick when run in the off tasks or asynchronously.
@@ -189,6 +200,7 @@ public class SystemInfo
             return ListValue.of(new NumericValue(rotation.x), new NumericValue(rotation.y));
         });
         put("scarpet_version", c -> StringValue.of(Carpet.getCarpetVersion()));
+        put("scarpet_caches", c -> ParseCache.stats());
     }};
 
     public static Value get(String what, CarpetContext cc)
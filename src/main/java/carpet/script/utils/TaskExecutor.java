@@ -0,0 +1,186 @@
+package carpet.script.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for scarpet tasks. Each task runs on a virtual thread, so blocking on the main thread (which most world
+ * access does) doesn't hold on to a platform thread. Number of tasks running at the same time can be capped,
+ * in which case tasks above the limit wait in a queue and are picked up by running workers as they finish.
+ */
+public class TaskExecutor extends AbstractExecutorService
+{
+    private final ExecutorService threads;
+    private final int parallelism;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger workers = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param name prefix of the names of spawned threads
+     * @param parallelism maximum number of tasks running at the same time, 0 for no limit
+     */
+    public TaskExecutor(String name, int parallelism)
+    {
+        this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name, 0).factory());
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public void execute(Runnable task)
+    {
+        if (shutdown)
+        {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+        queued.incrementAndGet();
+        queue.add(task);
+        spawnWorker();
+    }
+
+    private void spawnWorker()
+    {
+        while (true)
+        {
+            int current = workers.get();
+            if (parallelism > 0 && current >= parallelism)
+            {
+                return;
+            }
+            if (workers.compareAndSet(current, current + 1))
+            {
+                try
+                {
+                    threads.execute(this::work);
+                }
+                catch (RejectedExecutionException ignored)
+                {
+                    // shut down in the meantime, queued tasks will be dropped
+                    workers.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private void work()
+    {
+        while (true)
+        {
+            Runnable task = queue.poll();
+            if (task == null)
+            {
+                workers.decrementAndGet();
+                // a task could have been added after the poll, but before this worker was gone
+                if (queue.isEmpty() || shutdown)
+                {
+                    return;
+                }
+                int current = workers.get();
+                if ((parallelism > 0 && current >= parallelism) || !workers.compareAndSet(current, current + 1))
+                {
+                    return;
+                }
+                continue;
+            }
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                active.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return number of tasks that are either running or waiting to be run
+     */
+    public int taskCount()
+    {
+        return active.get() + queued.get();
+    }
+
+    public int activeCount()
+    {
+        return active.get();
+    }
+
+    public int queuedCount()
+    {
+        return queued.get();
+    }
+
+    public long completedCount()
+    {
+        return completed.get();
+    }
+
+    public long rejectedCount()
+    {
+        return rejected.get();
+    }
+
+    public void reject()
+    {
+        rejected.incrementAndGet();
+    }
+
+    @Override
+    public void shutdown()
+    {
+        shutdown = true;
+        threads.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        shutdown = true;
+        List<Runnable> dropped = new ArrayList<>();
+        Runnable task;
+        while ((task = queue.poll()) != null)
+        {
+            queued.decrementAndGet();
+            dropped.add(task);
+        }
+        threads.shutdownNow();
+        return dropped;
+    }
+
+    @Override
+    public boolean isShutdown()
+    {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated()
+    {
+        return shutdown && threads.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException
+    {
+        return threads.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,162 @@
+package carpet.script.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Hierarchical timing wheel keyed by absolute tick.
+ * Scheduling is O(1), and advancing time only touches entries that are due, plus an occasional cascade of a coarser
+ * slot into finer ones. Entries due on the same tick are returned in the order they were scheduled in.
+ *
+ * @param <T> type of scheduled elements
+ */
+public class TimingWheel<T>
+{
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private record Entry<T>(T value, long tick)
+    {
+    }
+
+    private final List<List<Entry<T>>> wheels = new ArrayList<>(LEVELS * SLOTS);
+    // anything scheduled beyond the range of the coarsest wheel
+    private List<Entry<T>> overflow = new ArrayList<>();
+    private long now = 0;
+    private int pending = 0;
+    private long fired = 0;
+
+    public TimingWheel()
+    {
+        for (int i = 0; i < LEVELS * SLOTS; i++)
+        {
+            wheels.add(null);
+        }
+    }
+
+    /**
+     * @param value element to schedule
+     * @param delay number of ticks from now, values below 1 will fire on the next tick
+     */
+    public void schedule(T value, long delay)
+    {
+        place(new Entry<>(value, now + Math.max(delay, 1)));
+        pending++;
+    }
+
+    /**
+     * @return tick at which an element scheduled now with given delay would fire
+     */
+    public long dueTick(long delay)
+    {
+        return now + Math.max(delay, 1);
+    }
+
+    private void place(Entry<T> entry)
+    {
+        for (int level = 0; level < LEVELS; level++)
+        {
+            int shift = BITS * (level + 1);
+            // entry lands in the wheel where it shares the same window as the current time
+            if ((entry.tick() >>> shift) == (now >>> shift))
+            {
+                int index = level * SLOTS + (int) ((entry.tick() >>> (BITS * level)) & MASK);
+                List<Entry<T>> slot = wheels.get(index);
+                if (slot == null)
+                {
+                    slot = new ArrayList<>();
+                    wheels.set(index, slot);
+                }
+                slot.add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    /**
+     * Moves time forward by one tick
+     *
+     * @return elements that are due on the new tick, in scheduling order
+     */
+    public List<T> advance()
+    {
+        now++;
+        if ((now & ((1L << (BITS * LEVELS)) - 1)) == 0 && !overflow.isEmpty())
+        {
+            List<Entry<T>> toPlace = overflow;
+            overflow = new ArrayList<>();
+            toPlace.forEach(this::place);
+        }
+        // coarse wheels first, so their entries can further cascade down on the same tick
+        for (int level = LEVELS - 1; level > 0; level--)
+        {
+            if ((now & ((1L << (BITS * level)) - 1)) == 0)
+            {
+                int index = level * SLOTS + (int) ((now >>> (BITS * level)) & MASK);
+                List<Entry<T>> slot = wheels.get(index);
+                if (slot != null)
+                {
+                    wheels.set(index, null);
+                    slot.forEach(this::place);
+                }
+            }
+        }
+        int index = (int) (now & MASK);
+        List<Entry<T>> due = wheels.get(index);
+        if (due == null)
+        {
+            return Collections.emptyList();
+        }
+        wheels.set(index, null);
+        List<T> result = new ArrayList<>(due.size());
+        for (Entry<T> entry : due)
+        {
+            result.add(entry.value());
+        }
+        pending -= result.size();
+        fired += result.size();
+        return result;
+    }
+
+    /**
+     * Removes all pending elements matching the predicate. Unlike scheduling, this goes through all pending elements
+     */
+    public void removeIf(Predicate<T> predicate)
+    {
+        for (List<Entry<T>> slot : wheels)
+        {
+            if (slot != null)
+            {
+                pending -= removeFrom(slot, predicate);
+            }
+        }
+        pending -= removeFrom(overflow, predicate);
+    }
+
+    private int removeFrom(List<Entry<T>> entries, Predicate<T> predicate)
+    {
+        int before = entries.size();
+        entries.removeIf(e -> predicate.test(e.value()));
+        return before - entries.size();
+    }
+
+    public long currentTick()
+    {
+        return now;
+    }
+
+    public int pending()
+    {
+        return pending;
+    }
+
+    public long fired()
+    {
+        return fired;
+    }
+}
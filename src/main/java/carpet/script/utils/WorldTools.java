@@ -25,8 +25,6 @@ import net.minecraft.world.level.border.BorderChangeListener;
 import net.minecraft.world.level.chunk.ChunkGenerator;
 import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.chunk.status.ChunkStatus;
-import net.minecraft.world.level.chunk.storage.RegionFile;
-import net.minecraft.world.level.chunk.storage.RegionStorageInfo;
 import net.minecraft.world.level.dimension.DimensionType;
 import net.minecraft.world.level.dimension.LevelStem;
 import net.minecraft.world.level.levelgen.NoiseBasedChunkGenerator;
@@ -35,61 +33,27 @@ import net.minecraft.world.level.levelgen.WorldGenSettings;
 import net.minecraft.world.level.storage.DerivedLevelData;
 import net.minecraft.world.level.storage.ServerLevelData;
 
-import javax.annotation.Nullable;
-import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
 public class WorldTools
 {
 
-    public static boolean canHasChunk(ServerLevel world, ChunkPos chpos, @Nullable Map<String, RegionFile> regionCache, boolean deepcheck)
+    public static boolean canHasChunk(ServerLevel world, ChunkPos chpos, boolean deepcheck)
     {
         if (world.getChunk(chpos.x, chpos.z, ChunkStatus.STRUCTURE_STARTS, false) != null)
         {
             return true;
         }
-        String currentRegionName = "r." + chpos.getRegionX() + "." + chpos.getRegionZ() + ".mca";
-        if (regionCache != null && regionCache.containsKey(currentRegionName))
-        {
-            RegionFile region = regionCache.get(currentRegionName);
-            if (region == null)
-            {
-                return false;
-            }
-            return region.hasChunk(chpos);
-        }
         Path regionsFolder = Vanilla.MinecraftServer_storageSource(world.getServer()).getDimensionPath(world.dimension()).resolve("region");
-        Path regionPath = regionsFolder.resolve(currentRegionName);
-        if (!regionPath.toFile().exists())
-        {
-            if (regionCache != null)
-            {
-                regionCache.put(currentRegionName, null);
-            }
-            return false;
-        }
         if (!deepcheck)
         {
-            return true; // not using cache in this case.
-        }
-        try
-        {
-            RegionStorageInfo levelStorageInfo = new RegionStorageInfo(Vanilla.MinecraftServer_storageSource(world.getServer()).getLevelId(), world.dimension(), "chunk");
-            RegionFile region = new RegionFile(levelStorageInfo, regionPath, regionsFolder, true);
-            if (regionCache != null)
-            {
-                regionCache.put(currentRegionName, region);
-            }
-            return region.hasChunk(chpos);
-        }
-        catch (IOException ignored)
-        {
+            return regionsFolder.resolve(RegionIndex.fileName(chpos)).toFile().exists();
         }
-        return true;
+        Boolean saved = RegionIndex.hasChunk(regionsFolder, chpos);
+        return saved == null || saved;
     }
 /*
     public static boolean createWorld(MinecraftServer server, String worldKey, Long seed)
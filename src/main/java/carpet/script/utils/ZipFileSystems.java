@@ -0,0 +1,124 @@
+package carpet.script.utils;
+
+import carpet.script.CarpetScriptServer;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Zip files used by apps, kept open between accesses, so their central directory isn't parsed again on every read
+ * and write. Open file systems are reference counted, and only closed when nothing uses them. Changes to a zip
+ * file system only make it to disk when it's closed, so modified ones are closed as soon as the file writer runs out
+ * of writes, and unmodified ones are closed after being unused for a while.
+ */
+public class ZipFileSystems
+{
+    private static final long IDLE_MILLIS = 30_000;
+
+    private static class OpenZip
+    {
+        private final FileSystem fs;
+        private int references = 0;
+        private boolean modified = false;
+        private long lastUsed;
+
+        private OpenZip(FileSystem fs)
+        {
+            this.fs = fs;
+        }
+    }
+
+    private static final Map<String, OpenZip> open = new HashMap<>();
+
+    /**
+     * Gets the zip file system for the file, opening it if needed. Each acquire needs to be paired with a release
+     *
+     * @param create whether to create the zip if it doesn't exist yet
+     * @param modify whether the zip is accessed to modify it
+     * @return file system of the zip, or null if it doesn't exist and is not meant to be created
+     */
+    @Nullable
+    public static synchronized FileSystem acquire(Path zipPath, boolean create, boolean modify) throws IOException
+    {
+        String key = zipPath.toString();
+        OpenZip zip = open.get(key);
+        if (zip == null)
+        {
+            if (!Files.exists(zipPath))
+            {
+                if (!create)
+                {
+                    return null;
+                }
+                if (!Files.exists(zipPath.getParent()))
+                {
+                    Files.createDirectories(zipPath.getParent());
+                }
+            }
+            zip = new OpenZip(FileSystems.newFileSystem(URI.create("jar:" + zipPath.toUri()), Map.of("create", "true")));
+            open.put(key, zip);
+        }
+        zip.references++;
+        zip.modified |= modify;
+        return zip.fs;
+    }
+
+    public static synchronized void release(Path zipPath)
+    {
+        OpenZip zip = open.get(zipPath.toString());
+        if (zip != null)
+        {
+            zip.references--;
+            zip.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Closes unused zip file systems that were modified, or weren't used for a while
+     */
+    public static synchronized void closeIdle()
+    {
+        long now = System.currentTimeMillis();
+        close(zip -> zip.modified || now - zip.lastUsed > IDLE_MILLIS);
+    }
+
+    /**
+     * Closes all unused zip file systems, writing their changes to disk
+     */
+    public static synchronized void closeAll()
+    {
+        close(zip -> true);
+    }
+
+    private static void close(Predicate<OpenZip> predicate)
+    {
+        Iterator<Map.Entry<String, OpenZip>> iterator = open.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            Map.Entry<String, OpenZip> entry = iterator.next();
+            OpenZip zip = entry.getValue();
+            if (zip.references > 0 || !predicate.test(zip))
+            {
+                continue;
+            }
+            iterator.remove();
+            try
+            {
+                zip.fs.close();
+            }
+            catch (IOException e)
+            {
+                CarpetScriptServer.LOG.warn("Unable to write zip file " + entry.getKey(), e);
+            }
+        }
+    }
+}
@@ -31,6 +31,14 @@ public abstract class AbstractListValue extends Value implements Iterable<Value>
         throw new InternalExpressionException("Cannot append a value to an abstract list");
     }
 
+    /**
+     * @return whether the value can't be changed in place, so copies of containers can share it
+     */
+    protected static boolean isImmutable(Value value)
+    {
+        return value instanceof NumericValue || value.getClass() == StringValue.class;
+    }
+
     @Override
     public Value fromConstant()
     {
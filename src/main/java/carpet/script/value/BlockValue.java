@@ -4,13 +4,13 @@ import carpet.script.CarpetContext;
 import carpet.script.exception.InternalExpressionException;
 import carpet.script.exception.ThrowStatement;
 import carpet.script.exception.Throwables;
+import carpet.script.utils.ParseCache;
 
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -60,31 +60,23 @@ public class BlockValue extends Value
         return new BlockValue(null, c.level(), pos);
     }
 
-    private static final Map<String, BlockValue> bvCache = new HashMap<>();
+    private static final ParseCache<BlockValue> bvCache = new ParseCache<>("blocks", 10000);
 
     public static BlockValue fromString(String str, ServerLevel level)
     {
         try
         {
-            BlockValue bv = bvCache.get(str); // [SCARY SHIT] persistent caches over server reloads
-            if (bv != null)
-            {
-                return bv;
-            }
-            BlockStateParser.BlockResult foo = BlockStateParser.parseForBlock(level.registryAccess().lookupOrThrow(Registries.BLOCK), new StringReader(str), true);
-            if (foo.blockState() != null)
-            {
-                CompoundTag bd = foo.nbt();
-                if (bd == null)
+            BlockValue bv = bvCache.get(str, s -> {
+                BlockStateParser.BlockResult foo = BlockStateParser.parseForBlock(level.registryAccess().lookupOrThrow(Registries.BLOCK), new StringReader(s), true);
+                if (foo.blockState() == null)
                 {
-                    bd = new CompoundTag();
+                    return null;
                 }
-                bv = new BlockValue(foo.blockState(), level, null, bd);
-                if (bvCache.size() > 10000)
-                {
-                    bvCache.clear();
-                }
-                bvCache.put(str, bv);
+                CompoundTag bd = foo.nbt();
+                return new BlockValue(foo.blockState(), level, null, bd == null ? new CompoundTag() : bd);
+            });
+            if (bv != null)
+            {
                 return bv;
             }
         }
@@ -10,6 +10,7 @@ import carpet.script.exception.InternalExpressionException;
 import carpet.script.external.Carpet;
 import carpet.script.utils.EntityTools;
 import carpet.script.utils.InputValidator;
+import carpet.script.utils.ParseCache;
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import net.minecraft.commands.CommandSourceStack;
@@ -97,30 +98,48 @@ import static carpet.script.value.NBTSerializableValue.nameFromRegistryId;
 public class EntityValue extends Value
 {
     private Entity entity;
+    // interned for a tick, so found by many queries at once
+    private boolean shared;
 
     public EntityValue(Entity e)
     {
         entity = e;
     }
 
+    /**
+     * @return value that can be handed out to many callers, binding it to a variable binds a copy instead
+     */
+    public static EntityValue shared(Entity e)
+    {
+        EntityValue value = new EntityValue(e);
+        value.shared = true;
+        return value;
+    }
+
+    @Override
+    public Value bindTo(String value)
+    {
+        if (!shared)
+        {
+            return super.bindTo(value);
+        }
+        EntityValue copy = (EntityValue) reboundedTo(value);
+        copy.shared = false;
+        return copy;
+    }
+
     public static Value of(@Nullable Entity e)
     {
         return e == null ? Value.NULL : new EntityValue(e);
     }
 
-    private static final Map<String, EntitySelector> selectorCache = new HashMap<>();
+    private static final ParseCache<EntitySelector> selectorCache = new ParseCache<>("selectors", 1024);
 
     public static Collection<? extends Entity> getEntitiesFromSelector(CommandSourceStack source, String selector)
     {
         try
         {
-            EntitySelector entitySelector = selectorCache.get(selector);
-            if (entitySelector != null)
-            {
-                return entitySelector.findEntities(source.withMaximumPermission(4));
-            }
-            entitySelector = new EntitySelectorParser(new StringReader(selector), true).parse();
-            selectorCache.put(selector, entitySelector);
+            EntitySelector entitySelector = selectorCache.get(selector, s -> new EntitySelectorParser(new StringReader(s), true).parse());
             return entitySelector.findEntities(source.withMaximumPermission(4));
         }
         catch (CommandSyntaxException e)
@@ -398,13 +417,22 @@ public class EntityValue extends Value
 
     public Value get(String what, @Nullable Value arg)
     {
-        if (!(featureAccessors.containsKey(what)))
+        BiFunction<Entity, Value, Value> accessor = featureAccessors.get(what);
+        if (accessor == null)
         {
             throw new InternalExpressionException("Unknown entity feature: " + what);
         }
+        return get(accessor, what, arg);
+    }
+
+    /**
+     * Queries a feature with an accessor resolved beforehand with {@link #getAccessor}
+     */
+    public Value get(BiFunction<Entity, Value, Value> accessor, String what, @Nullable Value arg)
+    {
         try
         {
-            return featureAccessors.get(what).apply(getEntity(), arg);
+            return accessor.apply(getEntity(), arg);
         }
         catch (NullPointerException npe)
         {
@@ -412,6 +440,15 @@ public class EntityValue extends Value
         }
     }
 
+    /**
+     * @return accessor for the feature, or null if there is no such feature
+     */
+    @Nullable
+    public static BiFunction<Entity, Value, Value> getAccessor(String what)
+    {
+        return featureAccessors.get(what);
+    }
+
     private static final Map<String, EquipmentSlot> inventorySlots = Map.of(
             "mainhand", EquipmentSlot.MAINHAND,
             "offhand", EquipmentSlot.OFFHAND,
@@ -866,13 +903,31 @@ public class EntityValue extends Value
 
     public void set(String what, @Nullable Value toWhat)
     {
-        if (!(featureModifiers.containsKey(what)))
+        BiConsumer<Entity, Value> modifier = featureModifiers.get(what);
+        if (modifier == null)
         {
             throw new InternalExpressionException("Unknown entity action: " + what);
         }
+        set(modifier, what, toWhat);
+    }
+
+    /**
+     * @return modifier for the feature, or null if there is no such feature
+     */
+    @Nullable
+    public static BiConsumer<Entity, Value> getModifier(String what)
+    {
+        return featureModifiers.get(what);
+    }
+
+    /**
+     * Modifies a feature with a modifier resolved beforehand with {@link #getModifier}
+     */
+    public void set(BiConsumer<Entity, Value> modifier, String what, @Nullable Value toWhat)
+    {
         try
         {
-            featureModifiers.get(what).accept(getEntity(), toWhat);
+            modifier.accept(getEntity(), toWhat);
         }
         catch (NullPointerException npe)
         {
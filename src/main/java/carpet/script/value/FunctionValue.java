@@ -239,7 +239,7 @@ public class FunctionValue extends Value implements Fluff.ILazyFunction
                             ". Should be at least " + args.size() + ", not " + params.size() + " like " + argList
             );
         });
-        Context newFrame = c.recreate();
+        Context newFrame = body instanceof final Expression.FunctionBody functionBody ? c.recreate(functionBody.layout()) : c.recreate();
         if (freshNewCallingThread != null)
         {
             newFrame.setThreadContext(freshNewCallingThread);
@@ -3,6 +3,7 @@ package carpet.script.value;
 import carpet.script.exception.InternalExpressionException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -53,6 +54,24 @@ public abstract class LazyListValue extends AbstractListValue implements Iterato
                 return stepp > 0 ? (current < limit) : (current > limit);
             }
 
+            @Override
+            public List<Value> unroll()
+            {
+                // filling the numbers directly, without creating values for them
+                double[] values = new double[16];
+                int size = 0;
+                for (; hasNext(); current += stepp)
+                {
+                    if (size == values.length)
+                    {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size++] = current;
+                }
+                reset();
+                return NumericArrayList.ofDoubles(Arrays.copyOf(values, size));
+            }
+
             @Override
             public String getString()
             {
@@ -101,6 +120,24 @@ public abstract class LazyListValue extends AbstractListValue implements Iterato
                 return stepp > 0 ? (current < limit) : (current > limit);
             }
 
+            @Override
+            public List<Value> unroll()
+            {
+                // filling the numbers directly, without creating values for them
+                long[] values = new long[16];
+                int size = 0;
+                for (; hasNext(); current += stepp)
+                {
+                    if (size == values.length)
+                    {
+                        values = Arrays.copyOf(values, size * 2);
+                    }
+                    values[size++] = current;
+                }
+                reset();
+                return NumericArrayList.ofLongs(Arrays.copyOf(values, size));
+            }
+
             @Override
             public String getString()
             {
@@ -2,6 +2,7 @@ package carpet.script.value;
 
 import carpet.script.LazyValue;
 import carpet.script.exception.InternalExpressionException;
+import carpet.script.utils.SnapshotList;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 
@@ -61,6 +62,24 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
     @Override
     public Value deepcopy()
     {
+        if (items instanceof NumericArrayList numbers && numbers.isNumeric())
+        {
+            return new ListValue(numbers.copy());
+        }
+        if (items instanceof SnapshotList<Value> shared)
+        {
+            // only mutable elements need copying, the rest is shared
+            List<Value> copyItems = shared.snapshot();
+            for (int i = 0, size = copyItems.size(); i < size; i++)
+            {
+                Value entry = copyItems.get(i);
+                if (!isImmutable(entry))
+                {
+                    copyItems.set(i, entry.deepcopy());
+                }
+            }
+            return new ListValue(copyItems);
+        }
         List<Value> copyItems = new ArrayList<>(items.size());
         for (Value entry : items)
         {
@@ -71,17 +90,18 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
 
     public ListValue(Collection<? extends Value> list)
     {
-        items = new ArrayList<>(list);
+        items = new SnapshotList<>(new ArrayList<>(list));
     }
 
     protected ListValue(List<Value> list)
     {
-        items = list;
+        // both switch their storage internally, so clones keep sharing the list
+        items = list instanceof NumericArrayList || list instanceof SnapshotList<Value> ? list : new SnapshotList<>(list);
     }
 
     public static Value fromTriple(double a, double b, double c)
     {
-        return ListValue.of(new NumericValue(a), new NumericValue(b), new NumericValue(c));
+        return new ListValue(NumericArrayList.ofDoubles(new double[]{a, b, c}));
     }
 
     public static Value fromTriple(int a, int b, int c)
@@ -107,12 +127,12 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
 
     public static ListValue ofNums(Number... list)
     {
-        List<Value> valList = new ArrayList<>();
-        for (Number i : list)
+        double[] values = new double[list.length];
+        for (int i = 0; i < list.length; i++)
         {
-            valList.add(new NumericValue(i.doubleValue()));
+            values[i] = list[i].doubleValue();
         }
-        return new ListValue(valList);
+        return new ListValue(NumericArrayList.ofDoubles(values));
     }
 
     public static LazyValue lazyEmpty()
@@ -123,12 +143,20 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
 
     private ListValue()
     {
-        items = new ArrayList<>();
+        items = new SnapshotList<>(new ArrayList<>());
     }
 
     @Override
     public Value add(Value other)
     {
+        if (items instanceof NumericArrayList numbers)
+        {
+            NumericArrayList result = numbers.combine(other, Long::sum, Double::sum);
+            if (result != null)
+            {
+                return new ListValue(result);
+            }
+        }
         ListValue output = new ListValue();
         if (other instanceof ListValue list)
         {
@@ -164,6 +192,14 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
     @Override
     public Value subtract(Value other)
     {
+        if (items instanceof NumericArrayList numbers)
+        {
+            NumericArrayList result = numbers.combine(other, (a, b) -> a - b, (a, b) -> a - b);
+            if (result != null)
+            {
+                return new ListValue(result);
+            }
+        }
         ListValue output = new ListValue();
         if (other instanceof ListValue list)
         {
@@ -199,6 +235,14 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
     @Override
     public Value multiply(Value other)
     {
+        if (items instanceof NumericArrayList numbers)
+        {
+            NumericArrayList result = numbers.combine(other, (a, b) -> a * b, (a, b) -> a * b);
+            if (result != null)
+            {
+                return new ListValue(result);
+            }
+        }
         ListValue output = new ListValue();
         if (other instanceof ListValue list)
         {
@@ -228,6 +272,14 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
     @Override
     public Value divide(Value other)
     {
+        if (items instanceof NumericArrayList numbers)
+        {
+            NumericArrayList result = numbers.combine(other, null, (a, b) -> a / b);
+            if (result != null)
+            {
+                return new ListValue(result);
+            }
+        }
         ListValue output = new ListValue();
         if (other instanceof ListValue list)
         {
@@ -296,12 +348,35 @@ public class ListValue extends AbstractListValue implements ContainerValueInterf
     @Override
     public Iterator<Value> iterator()
     {
-        return new ArrayList<>(items).iterator();
+        return copyItems().iterator();
     } // should be thread safe
 
+    /**
+     * @return copy of the backing list. Large lists switch to a persistent list the first time they are copied,
+     * so from then on copies are taken in constant time, and share everything that doesn't change
+     */
+    private List<Value> copyItems()
+    {
+        if (items instanceof NumericArrayList numbers)
+        {
+            // primitives copy fast enough, and don't need sharing
+            return numbers.copy();
+        }
+        if (items instanceof SnapshotList<Value> shared)
+        {
+            return shared.snapshot();
+        }
+        return new ArrayList<>(items);
+    }
+
     @Override
     public List<Value> unpack()
     {
+        if (items instanceof NumericArrayList numbers && numbers.isNumeric())
+        {
+            // so unpacked numbers stay primitive
+            return numbers.copy();
+        }
         return new ArrayList<>(items);
     }
 
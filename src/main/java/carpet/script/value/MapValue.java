@@ -1,6 +1,7 @@
 package carpet.script.value;
 
 import carpet.script.exception.InternalExpressionException;
+import carpet.script.utils.SnapshotMap;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
@@ -19,11 +20,11 @@ import net.minecraft.nbt.Tag;
 
 public class MapValue extends AbstractListValue implements ContainerValueInterface
 {
-    private final Map<Value, Value> map;
+    private final SnapshotMap<Value, Value> map;
 
     private MapValue()
     {
-        map = new HashMap<>();
+        map = new SnapshotMap<>(new HashMap<>());
     }
 
     public MapValue(List<Value> kvPairs)
@@ -41,7 +42,7 @@ public class MapValue extends AbstractListValue implements ContainerValueInterfa
     @Override
     public Iterator<Value> iterator()
     {
-        return new ArrayList<>(map.keySet()).iterator();
+        return map.keysSnapshot().iterator();
     }
 
     @Override
@@ -86,6 +87,23 @@ public class MapValue extends AbstractListValue implements ContainerValueInterfa
     @Override
     public Value deepcopy()
     {
+        if (map.size() >= 32)
+        {
+            // only mutable entries need copying, the rest is shared
+            Map<Value, Value> copyMap = map.snapshot();
+            map.forEach((key, value) -> {
+                if (!isImmutable(key))
+                {
+                    copyMap.remove(key);
+                    copyMap.put(key.deepcopy(), value.deepcopy());
+                }
+                else if (!isImmutable(value))
+                {
+                    copyMap.put(key, value.deepcopy());
+                }
+            });
+            return new MapValue(copyMap);
+        }
         Map<Value, Value> copyMap = new HashMap<>();
         map.forEach((key, value) -> copyMap.put(key.deepcopy(), value.deepcopy()));
         return new MapValue(copyMap);
@@ -93,7 +111,8 @@ public class MapValue extends AbstractListValue implements ContainerValueInterfa
 
     private MapValue(Map<Value, Value> other)
     {
-        map = other;
+        // clones share the map
+        map = other instanceof SnapshotMap<Value, Value> shared ? shared : new SnapshotMap<>(other);
     }
 
     public static MapValue wrap(Map<Value, Value> other)
@@ -104,7 +123,7 @@ public class MapValue extends AbstractListValue implements ContainerValueInterfa
     @Override
     public Value add(Value o)
     {
-        Map<Value, Value> newItems = new HashMap<>(map);
+        Map<Value, Value> newItems = map.snapshot();
         if (o instanceof MapValue mapValue)
         {
             newItems.putAll(mapValue.map);
@@ -6,6 +6,7 @@ import carpet.script.exception.ThrowStatement;
 import carpet.script.exception.Throwables;
 import carpet.script.external.Vanilla;
 import carpet.script.utils.EquipmentInventory;
+import carpet.script.utils.ParseCache;
 import com.mojang.brigadier.StringReader;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 
@@ -335,7 +336,7 @@ public class NBTSerializableValue extends Value implements ContainerValueInterfa
         }
     }
 
-    private static final Map<String, ItemInput> itemCache = new HashMap<>();
+    private static final ParseCache<ItemInput> itemCache = new ParseCache<>("items", 64000);
 
     public static ItemStack parseItem(String itemString, RegistryAccess regs)
     {
@@ -349,19 +350,10 @@ public class NBTSerializableValue extends Value implements ContainerValueInterfa
         }
         try
         {
-            ItemInput res = itemCache.get(itemString);  // [SCARY SHIT] persistent caches over server reloads
-            if (res != null)
-            {
-                return res.createItemStack(1, false);
-            }
-            ItemParser.ItemResult parser = (new ItemParser(regs)).parse(new StringReader(itemString));
-            res = new ItemInput(parser.item(), parser.components());
-
-            itemCache.put(itemString, res);
-            if (itemCache.size() > 64000)
-            {
-                itemCache.clear();
-            }
+            ItemInput res = itemCache.get(itemString, s -> {
+                ItemParser.ItemResult parser = (new ItemParser(regs)).parse(new StringReader(s));
+                return new ItemInput(parser.item(), parser.components());
+            });
             return res.createItemStack(1, false);
         }
         catch (CommandSyntaxException e)
@@ -730,29 +722,18 @@ public class NBTSerializableValue extends Value implements ContainerValueInterfa
         }
     }
 
-    private static final Map<String, NbtPathArgument.NbtPath> pathCache = new HashMap<>();
+    private static final ParseCache<NbtPathArgument.NbtPath> pathCache = new ParseCache<>("nbt_paths", 1024);
 
     private static NbtPathArgument.NbtPath cachePath(String arg)
     {
-        NbtPathArgument.NbtPath res = pathCache.get(arg);
-        if (res != null)
-        {
-            return res;
-        }
         try
         {
-            res = NbtPathArgument.nbtPath().parse(new StringReader(arg));
+            return pathCache.get(arg, s -> NbtPathArgument.nbtPath().parse(new StringReader(s)));
         }
         catch (CommandSyntaxException exc)
         {
             throw new InternalExpressionException("Incorrect nbt path: " + arg);
         }
-        if (pathCache.size() > 1024)
-        {
-            pathCache.clear();
-        }
-        pathCache.put(arg, res);
-        return res;
     }
 
     @Override
@@ -0,0 +1,362 @@
+package carpet.script.value;
+
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * List of values storing numbers in a primitive array, so large numeric lists don't need an object per element.
+ * Numbers are kept in a long array while all of them are exact integers, and in a double array otherwise.
+ * Values are only created when elements are accessed. Storing anything that is not a number, or an integer that a
+ * double can't hold exactly, switches the list to a regular list of values for good.
+ */
+public class NumericArrayList extends AbstractList<Value> implements RandomAccess
+{
+    // largest integer that doubles store exactly
+    private static final long MAX_EXACT = 1L << 53;
+
+    @Nullable
+    private long[] longs;
+    @Nullable
+    private double[] doubles;
+    @Nullable
+    private List<Value> boxed;
+    private int size;
+
+    public NumericArrayList()
+    {
+        this(10);
+    }
+
+    public NumericArrayList(int capacity)
+    {
+        longs = new long[capacity];
+    }
+
+    private NumericArrayList(@Nullable long[] longs, @Nullable double[] doubles, int size)
+    {
+        this.longs = longs;
+        this.doubles = doubles;
+        this.size = size;
+    }
+
+    public static NumericArrayList ofLongs(long[] values)
+    {
+        return new NumericArrayList(values, null, values.length);
+    }
+
+    public static NumericArrayList ofDoubles(double[] values)
+    {
+        return new NumericArrayList(null, values, values.length);
+    }
+
+    /**
+     * @return whether elements are still stored as primitives
+     */
+    public boolean isNumeric()
+    {
+        return boxed == null;
+    }
+
+    /**
+     * @return whether all elements are stored as exact integers
+     */
+    public boolean isLong()
+    {
+        return longs != null;
+    }
+
+    /**
+     * @return independent copy of the list
+     */
+    public NumericArrayList copy()
+    {
+        if (boxed != null)
+        {
+            NumericArrayList copy = new NumericArrayList(null, null, 0);
+            copy.boxed = new ArrayList<>(boxed);
+            return copy;
+        }
+        return new NumericArrayList(
+                longs == null ? null : Arrays.copyOf(longs, size),
+                doubles == null ? null : Arrays.copyOf(doubles, size),
+                size
+        );
+    }
+
+    @Override
+    public int size()
+    {
+        return boxed == null ? size : boxed.size();
+    }
+
+    @Override
+    public Value get(int index)
+    {
+        if (boxed != null)
+        {
+            return boxed.get(index);
+        }
+        Objects.checkIndex(index, size);
+        return longs != null ? NumericValue.of(longs[index]) : new NumericValue(doubles[index]);
+    }
+
+    @Override
+    public Value set(int index, Value element)
+    {
+        if (boxed == null && accept(element))
+        {
+            Value previous = get(index);
+            store(index, (NumericValue) element);
+            return previous;
+        }
+        return boxed.set(index, element);
+    }
+
+    @Override
+    public void add(int index, Value element)
+    {
+        if (boxed == null && accept(element))
+        {
+            Objects.checkIndex(index, size + 1);
+            if (longs != null)
+            {
+                if (size == longs.length)
+                {
+                    longs = Arrays.copyOf(longs, Math.max(10, size + (size >> 1)));
+                }
+                System.arraycopy(longs, index, longs, index + 1, size - index);
+            }
+            else
+            {
+                if (size == doubles.length)
+                {
+                    doubles = Arrays.copyOf(doubles, Math.max(10, size + (size >> 1)));
+                }
+                System.arraycopy(doubles, index, doubles, index + 1, size - index);
+            }
+            size++;
+            store(index, (NumericValue) element);
+            modCount++;
+            return;
+        }
+        boxed.add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public Value remove(int index)
+    {
+        if (boxed != null)
+        {
+            modCount++;
+            return boxed.remove(index);
+        }
+        Value removed = get(index);
+        if (longs != null)
+        {
+            System.arraycopy(longs, index + 1, longs, index, size - index - 1);
+        }
+        else
+        {
+            System.arraycopy(doubles, index + 1, doubles, index, size - index - 1);
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear()
+    {
+        boxed = null;
+        doubles = null;
+        longs = new long[10];
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Makes sure the primitive storage can hold the value, switching from longs to doubles, or to boxed values
+     *
+     * @return true if the value can be stored as a primitive
+     */
+    private boolean accept(Value value)
+    {
+        // booleans and null are numeric too, but have to come back as themselves
+        if (value.getClass() != NumericValue.class)
+        {
+            switchToBoxed();
+            return false;
+        }
+        NumericValue number = (NumericValue) value;
+        if (number.isLongBacked())
+        {
+            long l = number.getLong();
+            if (longs != null || (l <= MAX_EXACT && l >= -MAX_EXACT))
+            {
+                return true;
+            }
+            switchToBoxed();
+            return false;
+        }
+        if (longs != null)
+        {
+            double[] converted = new double[Math.max(longs.length, 10)];
+            for (int i = 0; i < size; i++)
+            {
+                long l = longs[i];
+                if (l > MAX_EXACT || l < -MAX_EXACT)
+                {
+                    switchToBoxed();
+                    return false;
+                }
+                converted[i] = l;
+            }
+            doubles = converted;
+            longs = null;
+        }
+        return true;
+    }
+
+    private void store(int index, NumericValue number)
+    {
+        if (longs != null)
+        {
+            longs[index] = number.getLong();
+        }
+        else
+        {
+            doubles[index] = number.getDouble();
+        }
+    }
+
+    private void switchToBoxed()
+    {
+        List<Value> values = new ArrayList<>(Math.max(size, 10));
+        for (int i = 0; i < size; i++)
+        {
+            values.add(get(i));
+        }
+        boxed = values;
+        longs = null;
+        doubles = null;
+        size = 0;
+    }
+
+    /**
+     * Applies an operation to each element, and either a number or the matching element of an equally long list
+     *
+     * @param longOp operation on exact integers, or null if the result is always a double
+     * @return list of results, or null if the operation can't be done on primitives
+     */
+    @Nullable
+    public NumericArrayList combine(Value other, @Nullable LongBinaryOperator longOp, DoubleBinaryOperator doubleOp)
+    {
+        if (boxed != null)
+        {
+            return null;
+        }
+        if (other instanceof NumericValue number)
+        {
+            if (longOp != null && longs != null && number.isLongBacked())
+            {
+                long operand = number.getLong();
+                long[] result = new long[size];
+                for (int i = 0; i < size; i++)
+                {
+                    result[i] = longOp.applyAsLong(longs[i], operand);
+                }
+                return ofLongs(result);
+            }
+            double operand = number.getDouble();
+            double[] result = new double[size];
+            for (int i = 0; i < size; i++)
+            {
+                result[i] = doubleOp.applyAsDouble(getDouble(i), operand);
+            }
+            return ofDoubles(result);
+        }
+        if (!(other instanceof ListValue list && list.getItems() instanceof NumericArrayList numbers && numbers.boxed == null && numbers.size == size))
+        {
+            return null;
+        }
+        if (longOp != null && longs != null && numbers.longs != null)
+        {
+            long[] result = new long[size];
+            for (int i = 0; i < size; i++)
+            {
+                result[i] = longOp.applyAsLong(longs[i], numbers.longs[i]);
+            }
+            return ofLongs(result);
+        }
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++)
+        {
+            result[i] = doubleOp.applyAsDouble(getDouble(i), numbers.getDouble(i));
+        }
+        return ofDoubles(result);
+    }
+
+    /**
+     * @return index of the first largest, or smallest element, or -1 if there are no elements stored as primitives
+     */
+    public int indexOfExtreme(boolean largest)
+    {
+        if (boxed != null || size == 0)
+        {
+            return -1;
+        }
+        int best = 0;
+        int sign = largest ? 1 : -1;
+        for (int i = 1; i < size; i++)
+        {
+            int comparison = longs != null ? Long.compare(longs[i], longs[best]) : Double.compare(doubles[i], doubles[best]);
+            if (comparison * sign > 0)
+            {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Folds all elements from the first one, like the sum function does
+     *
+     * @return result, or null if the list is empty or doesn't store primitives
+     */
+    @Nullable
+    public Value reduce(LongBinaryOperator longOp, DoubleBinaryOperator doubleOp)
+    {
+        if (boxed != null || size == 0)
+        {
+            return null;
+        }
+        if (longs != null)
+        {
+            long accumulator = longs[0];
+            for (int i = 1; i < size; i++)
+            {
+                accumulator = longOp.applyAsLong(accumulator, longs[i]);
+            }
+            return NumericValue.of(accumulator);
+        }
+        double accumulator = doubles[0];
+        for (int i = 1; i < size; i++)
+        {
+            accumulator = doubleOp.applyAsDouble(accumulator, doubles[i]);
+        }
+        return new NumericValue(accumulator);
+    }
+
+    private double getDouble(int index)
+    {
+        return longs != null ? longs[index] : doubles[index];
+    }
+}
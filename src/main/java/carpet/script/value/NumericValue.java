@@ -22,10 +22,32 @@ import static java.lang.Math.signum;
 public class NumericValue extends Value
 {
     private final double value;
-    private Long longValue;
+    // only meaningful if isLong is set, kept unboxed so integer arithmetic allocates one object per result
+    private final long longValue;
+    private final boolean isLong;
     private static final double epsilon = abs(32 * ((7 * 0.1) * 10 - 7));
     private static final MathContext displayRounding = new MathContext(12, RoundingMode.HALF_EVEN);
 
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final NumericValue[] cache = new NumericValue[CACHE_HIGH - CACHE_LOW + 1];
+
+    static
+    {
+        for (int i = 0; i < cache.length; i++)
+        {
+            cache[i] = new NumericValue(i + CACHE_LOW);
+        }
+    }
+
+    /**
+     * Returns a shared instance for small integers, like loop counters and indices, and a new one otherwise
+     */
+    public static NumericValue of(long value)
+    {
+        return value >= CACHE_LOW && value <= CACHE_HIGH ? cache[(int) value - CACHE_LOW] : new NumericValue(value);
+    }
+
     public static NumericValue asNumber(Value v1, String id)
     {
         if (v1 instanceof NumericValue nv)
@@ -52,7 +74,7 @@ public class NumericValue extends Value
         }
         if (value.doubleValue() == value.longValue())
         {
-            return new NumericValue(value.longValue());
+            return of(value.longValue());
         }
         if (value instanceof Float)
         {
@@ -65,9 +87,9 @@ public class NumericValue extends Value
     @Override
     public String getString()
     {
-        if (longValue != null)
+        if (isLong)
         {
-            return Long.toString(getLong());
+            return Long.toString(longValue);
         }
         try
         {
@@ -95,7 +117,7 @@ public class NumericValue extends Value
     @Override
     public String getPrettyString()
     {
-        return longValue != null || getDouble() == getLong()
+        return isLong || getDouble() == getLong()
                 ? Long.toString(getLong())
                 : String.format(Locale.ROOT, "%.1f..", getDouble());
     }
@@ -124,7 +146,15 @@ public class NumericValue extends Value
 
     public long getLong()
     {
-        return longValue != null ? longValue : Long.valueOf(floor((value + epsilon)));
+        return isLong ? longValue : floor(value + epsilon);
+    }
+
+    /**
+     * @return true if the value is stored as an exact integer, so {@link #getLong()} is lossless
+     */
+    public boolean isLongBacked()
+    {
+        return isLong;
     }
 
     @Override
@@ -132,7 +162,7 @@ public class NumericValue extends Value
     {  // TODO test if definintn add(NumericVlaue) woud solve the casting
         if (v instanceof NumericValue nv)
         {
-            return longValue != null && nv.longValue != null ? new NumericValue(longValue + nv.longValue) : new NumericValue(value + nv.value);
+            return isLong && nv.isLong ? of(longValue + nv.longValue) : new NumericValue(value + nv.value);
         }
         return super.add(v);
     }
@@ -142,7 +172,7 @@ public class NumericValue extends Value
     {  // TODO test if definintn add(NumericVlaue) woud solve the casting
         if (v instanceof NumericValue nv)
         {
-            return longValue != null && nv.longValue != null ? new NumericValue(longValue - nv.longValue) : new NumericValue(value - nv.value);
+            return isLong && nv.isLong ? of(longValue - nv.longValue) : new NumericValue(value - nv.value);
         }
         return super.subtract(v);
     }
@@ -152,7 +182,7 @@ public class NumericValue extends Value
     {
         if (v instanceof NumericValue nv)
         {
-            return longValue != null && nv.longValue != null ? new NumericValue(longValue * nv.longValue) : new NumericValue(value * nv.value);
+            return isLong && nv.isLong ? of(longValue * nv.longValue) : new NumericValue(value * nv.value);
         }
         return v instanceof ListValue ? v.multiply(this) : new StringValue(StringUtils.repeat(v.getString(), (int) getLong()));
     }
@@ -166,7 +196,19 @@ public class NumericValue extends Value
     @Override
     public Value clone()
     {
-        return new NumericValue(value, longValue);
+        return new NumericValue(value, longValue, isLong);
+    }
+
+    @Override
+    public Value bindTo(String value)
+    {
+        // shared small values can't carry the name of a variable, since they could be in many at once
+        return isShared() ? reboundedTo(value) : super.bindTo(value);
+    }
+
+    private boolean isShared()
+    {
+        return isLong && longValue >= CACHE_LOW && longValue <= CACHE_HIGH && cache[(int) longValue - CACHE_LOW] == this;
     }
 
     @Override
@@ -178,7 +220,7 @@ public class NumericValue extends Value
         }
         if (o instanceof NumericValue no)
         {
-            return longValue != null && no.longValue != null ? longValue.compareTo(no.longValue) : Double.compare(value, no.value);
+            return isLong && no.isLong ? Long.compare(longValue, no.longValue) : Double.compare(value, no.value);
         }
         return getString().compareTo(o.getString());
     }
@@ -194,9 +236,9 @@ public class NumericValue extends Value
             }
             if (o instanceof NumericValue no)
             {
-                if (longValue != null && no.longValue != null)
+                if (isLong && no.isLong)
                 {
-                    return longValue.equals(no.longValue);
+                    return longValue == no.longValue;
                 }
                 if (Double.isNaN(this.value) || Double.isNaN(no.value))
                 {
@@ -211,35 +253,40 @@ public class NumericValue extends Value
 
     public NumericValue(double value)
     {
-        this.value = value;
+        this(value, 0L, false);
     }
 
-    private NumericValue(double value, Long longValue)
+    private NumericValue(double value, long longValue, boolean isLong)
     {
         this.value = value;
         this.longValue = longValue;
+        this.isLong = isLong;
     }
 
     public NumericValue(String value)
     {
         BigDecimal decimal = new BigDecimal(value);
+        long exact = 0L;
+        boolean integral = false;
         if (decimal.stripTrailingZeros().scale() <= 0)
         {
             try
             {
-                longValue = decimal.longValueExact();
+                exact = decimal.longValueExact();
+                integral = true;
             }
             catch (ArithmeticException ignored)
             {
             }
         }
         this.value = decimal.doubleValue();
+        this.longValue = exact;
+        this.isLong = integral;
     }
 
     public NumericValue(long value)
     {
-        this.longValue = value;
-        this.value = (double) value;
+        this((double) value, value, true);
     }
 
     @Override
@@ -270,7 +317,7 @@ public class NumericValue extends Value
     public int hashCode()
     {
         // is sufficiently close to the integer value
-        return longValue != null || Math.abs(Math.floor(value + 0.5D) - value) < epsilon ? Long.hashCode(getLong()) : Double.hashCode(value);
+        return isLong || Math.abs(Math.floor(value + 0.5D) - value) < epsilon ? Long.hashCode(getLong()) : Double.hashCode(value);
     }
 
 
@@ -282,11 +329,11 @@ public class NumericValue extends Value
     @Override
     public Tag toTag(boolean force, RegistryAccess regs)
     {
-        if (longValue != null)
+        if (isLong)
         {
             if (abs(longValue) < Integer.MAX_VALUE - 2)
             {
-                return IntTag.valueOf((int) (long) longValue);
+                return IntTag.valueOf((int) longValue);
             }
             return LongTag.valueOf(longValue);
         }
@@ -308,7 +355,7 @@ public class NumericValue extends Value
     @Override
     public JsonElement toJson()
     {
-        if (longValue != null)
+        if (isLong)
         {
             return new JsonPrimitive(longValue);
         }
@@ -317,19 +364,19 @@ public class NumericValue extends Value
 
     public NumericValue opposite()
     {
-        return longValue != null ? new NumericValue(-longValue) : new NumericValue(-value);
+        return isLong ? of(-longValue) : new NumericValue(-value);
     }
 
     public boolean isInteger()
     {
-        return longValue != null || getDouble() == getLong();
+        return isLong || getDouble() == getLong();
     }
 
     public Value mod(NumericValue n2)
     {
-        if (this.longValue != null && n2.longValue != null)
+        if (this.isLong && n2.isLong)
         {
-            return new NumericValue(Math.floorMod(longValue, n2.longValue));
+            return of(Math.floorMod(longValue, n2.longValue));
         }
         double x = value;
         double y = n2.value;
@@ -0,0 +1,204 @@
+package carpet.script.value;
+
+import carpet.script.exception.ThrowStatement;
+import carpet.script.exception.Throwables;
+import carpet.script.utils.ScarpetJsonDeserializer;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Content of a file read on demand, either line by line, or element by element of a top level JSON list, so large
+ * files don't need to be loaded into memory at once. The file is open only while it is being iterated over,
+ * and resetting the iteration opens it again from the start.
+ */
+public class StreamedFileValue extends LazyListValue
+{
+    public interface Source
+    {
+        /**
+         * @return reader of the file, or null if the file is no longer there
+         */
+        @Nullable
+        BufferedReader open();
+
+        /**
+         * Called after the reader is closed
+         */
+        void release();
+    }
+
+    private static final ScarpetJsonDeserializer deserializer = new ScarpetJsonDeserializer();
+
+    private final String name;
+    private final boolean json;
+    private final Source source;
+    @Nullable
+    private BufferedReader reader = null;
+    @Nullable
+    private JsonReader jsonReader = null;
+    @Nullable
+    private Value next = null;
+    private boolean started = false;
+    private boolean finished = false;
+
+    /**
+     * @param json whether the file is a JSON file with a list at the top level, otherwise it's read by lines
+     */
+    public StreamedFileValue(String name, boolean json, Source source)
+    {
+        this.name = name;
+        this.json = json;
+        this.source = source;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if (next == null && !finished)
+        {
+            if (!started)
+            {
+                started = true;
+                open();
+            }
+            if (!finished)
+            {
+                advance();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Value next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        Value value = next;
+        next = null;
+        return value;
+    }
+
+    @Override
+    public void reset()
+    {
+        closeReader();
+        started = false;
+        finished = false;
+        next = null;
+    }
+
+    private void open()
+    {
+        reader = source.open();
+        if (reader == null)
+        {
+            finished = true;
+            source.release();
+            return;
+        }
+        if (json)
+        {
+            jsonReader = new JsonReader(reader);
+            jsonReader.setLenient(true);
+            try
+            {
+                if (jsonReader.peek() != JsonToken.BEGIN_ARRAY)
+                {
+                    closeReader();
+                    throw jsonError("Streamed JSON file needs to have a list at the top level");
+                }
+                jsonReader.beginArray();
+            }
+            catch (IOException e)
+            {
+                closeReader();
+                throw readError(e);
+            }
+        }
+    }
+
+    private void advance()
+    {
+        try
+        {
+            if (jsonReader != null)
+            {
+                if (jsonReader.hasNext())
+                {
+                    next = deserializer.deserialize(JsonParser.parseReader(jsonReader), Value.class, null);
+                    return;
+                }
+            }
+            else if (reader != null)
+            {
+                String line = reader.readLine();
+                if (line != null)
+                {
+                    next = StringValue.of(line.replaceAll("[\n\r]+", ""));
+                    return;
+                }
+            }
+        }
+        catch (IOException | JsonParseException e)
+        {
+            closeReader();
+            throw readError(e);
+        }
+        // end of the file, no need to keep it open any longer
+        closeReader();
+    }
+
+    private void closeReader()
+    {
+        finished = true;
+        if (reader == null)
+        {
+            return;
+        }
+        try
+        {
+            reader.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+        reader = null;
+        jsonReader = null;
+        source.release();
+    }
+
+    private ThrowStatement readError(Exception e)
+    {
+        if (e instanceof MalformedJsonException || e instanceof JsonParseException)
+        {
+            return jsonError(e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+        return new ThrowStatement("Failed to read file " + name, Throwables.IO_EXCEPTION);
+    }
+
+    private ThrowStatement jsonError(String message)
+    {
+        return new ThrowStatement(MapValue.wrap(Map.of(
+                StringValue.of("error"), StringValue.of(message),
+                StringValue.of("path"), StringValue.of(name)
+        )), Throwables.JSON_ERROR);
+    }
+
+    @Override
+    public String getString()
+    {
+        return "[" + name + ", ...]";
+    }
+}
@@ -37,6 +37,16 @@ public class ThreadValue extends LazyListValue
         Thread.yield();
     }
 
+    /**
+     * Wraps a computation already running elsewhere
+     */
+    public ThreadValue(CompletableFuture<Value> future)
+    {
+        this.id = sequence++;
+        this.isCoroutine = false;
+        this.taskFuture = future;
+    }
+
     public CompletableFuture<Value> getCompletableFutureFromFunction(Value pool, FunctionValue function, Expression expr, Tokenizer.Token token, Context ctx, List<Value> args)
     {
         ExecutorService executor = ctx.host.getExecutor(pool);
@@ -63,7 +73,7 @@ public class ThreadValue extends LazyListValue
                     ctx.host.handleExpressionException("Thread failed\n", exc);
                     return Value.NULL;
                 }
-            }, ctx.host.getExecutor(pool));
+            }, executor);
         }
     }
 
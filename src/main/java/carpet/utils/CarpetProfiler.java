@@ -1,11 +1,13 @@
 package carpet.utils;
 
+import carpet.CarpetSettings;
+import carpet.fakes.LevelInterface;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2LongMap;
 import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
 import net.minecraft.commands.CommandSourceStack;
-import net.minecraft.core.RegistryAccess;
 import net.minecraft.core.registries.BuiltInRegistries;
-import net.minecraft.core.registries.Registries;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.MinecraftServer;
@@ -14,20 +16,27 @@ import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
-import org.apache.commons.lang3.tuple.Pair;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static java.util.Map.entry;
 
+/**
+ * Measures time spent in sections of the tick. Each section of each dimension gets an integer id the first time it's
+ * seen, and each thread adds up times of its sections in its own arrays indexed by these ids, so measuring a section
+ * doesn't allocate anything. Totals only ever grow, and reports show the difference between totals at their start
+ * and end, so with {@link CarpetSettings#continuousProfiling} sections can be measured all the time.
+ * Starting a section returns a token, which needs to be passed when the section ends, or -1 if nothing is measured.
+ */
 public class CarpetProfiler
 {
-    private static final Object2LongOpenHashMap<String> SECTION_STATS = new Object2LongOpenHashMap<>();
-    private static final Object2LongOpenHashMap<Pair<Level,Object>> ENTITY_TIMES = new Object2LongOpenHashMap<>();
-    private static final Object2LongOpenHashMap<Pair<Level,Object>> ENTITY_COUNT = new Object2LongOpenHashMap<>();
-
-
     private static CommandSourceStack currentRequester = null;
     public static int tick_health_requested = 0;
     private static int tick_health_elapsed = 0;
@@ -74,89 +83,299 @@ public class CarpetProfiler
         TILEENTITY
     }
 
-    public static record ProfilerToken(TYPE type, Object section, long start, Level world)
+    /**
+     * Section of the tick, either named, or ticking entities or block entities of a type, in a dimension if any
+     */
+    public record Section(@Nullable ResourceKey<Level> dimension, boolean client, Object section)
     {
-        public ProfilerToken(TYPE type, Object section, Level world)
+        public String key()
         {
-            this(type, section, System.nanoTime(), world);
+            return dimension == null ? section.toString() : dimension.location() + "." + section + (client ? " (Client)" : "");
         }
     }
 
-    public static void prepare_tick_report(CommandSourceStack source, int ticks)
+    // ids of sections, for server and client side dimensions
+    private static final List<Reference2ObjectOpenHashMap<ResourceKey<Level>, Object2IntOpenHashMap<Object>>> SECTION_IDS = List.of(
+            new Reference2ObjectOpenHashMap<>(), new Reference2ObjectOpenHashMap<>()
+    );
+    private static final List<Section> SECTIONS_BY_ID = new ArrayList<>();
+    public static final int TICK = section_id(null, "tick");
+    private static final LevelSections NO_LEVEL = new LevelSections(null);
+
+    /**
+     * Ids of sections of a single level, kept by the level, so sections measured every tick, or for every entity,
+     * are looked up without taking any locks. New sections are registered globally, since the same dimension
+     * can be seen by more than one level object
+     */
+    public static final class LevelSections
     {
-        //maybe add so it only spams the sending player, but honestly - all may want to see it
-        SECTION_STATS.clear(); // everything then defaults to 0
-        ENTITY_COUNT.clear();
-        ENTITY_TIMES.clear();
-        test_type = TYPE.GENERAL;
+        @Nullable
+        private final Level level;
+        private final Map<Object, Integer> ids = new ConcurrentHashMap<>();
+
+        public LevelSections(@Nullable Level level)
+        {
+            this.level = level;
+        }
+
+        public int id(Object section)
+        {
+            Integer id = ids.get(section);
+            if (id == null)
+            {
+                id = section_id(level, section);
+                ids.put(section, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Times and counts of sections measured by a thread, and sections it is currently in
+     */
+    private static final class ThreadTimes
+    {
+        private static final int MAX_DEPTH = 256;
+        private long[] times = new long[64];
+        private long[] counts = new long[64];
+        private long[] starts = new long[16];
+        private int[] ids = new int[16];
+        private int depth = 0;
+
+        private int push(int id)
+        {
+            if (depth == starts.length)
+            {
+                if (depth == MAX_DEPTH)
+                {
+                    // sections that never ended, starting over
+                    depth = 0;
+                }
+                else
+                {
+                    starts = Arrays.copyOf(starts, depth * 2);
+                    ids = Arrays.copyOf(ids, depth * 2);
+                }
+            }
+            ids[depth] = id;
+            starts[depth] = System.nanoTime();
+            return depth++;
+        }
+
+        private void pop(int token)
+        {
+            long end = System.nanoTime();
+            if (token < 0 || token >= starts.length)
+            {
+                return;
+            }
+            add(ids[token], end - starts[token]);
+            // anything started later and not ended yet is forgotten
+            depth = token;
+        }
+
+        private void add(int id, long time)
+        {
+            if (id >= times.length)
+            {
+                int size = Math.max(id + 1, times.length * 2);
+                times = Arrays.copyOf(times, size);
+                counts = Arrays.copyOf(counts, size);
+            }
+            times[id] += time;
+            counts[id]++;
+        }
+    }
+
+    private static final List<ThreadTimes> ALL_THREAD_TIMES = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<ThreadTimes> THREAD_TIMES = ThreadLocal.withInitial(() -> {
+        ThreadTimes times = new ThreadTimes();
+        ALL_THREAD_TIMES.add(times);
+        return times;
+    });
+
+    // totals when the current report started
+    private static long[] baseline_times = new long[0];
+    private static long[] baseline_counts = new long[0];
+
+    private static LevelSections levelSections(@Nullable Level world)
+    {
+        return world == null ? NO_LEVEL : ((LevelInterface) world).getProfilerSections();
+    }
+
+    /**
+     * @return id of the section in the dimension of the world, or without a dimension if world is null
+     */
+    public static synchronized int section_id(@Nullable Level world, Object section)
+    {
+        ResourceKey<Level> dimension = world == null ? null : world.dimension();
+        boolean client = world != null && world.isClientSide;
+        Object2IntOpenHashMap<Object> ids = SECTION_IDS.get(client ? 1 : 0).computeIfAbsent(dimension, d -> {
+            Object2IntOpenHashMap<Object> map = new Object2IntOpenHashMap<>();
+            map.defaultReturnValue(-1);
+            return map;
+        });
+        int id = ids.getInt(section);
+        if (id < 0)
+        {
+            id = SECTIONS_BY_ID.size();
+            SECTIONS_BY_ID.add(new Section(dimension, client, section));
+            ids.put(section, id);
+        }
+        return id;
+    }
+
+    private static synchronized List<Section> sections()
+    {
+        return new ArrayList<>(SECTIONS_BY_ID);
+    }
+
+    public static synchronized Section section(int id)
+    {
+        return SECTIONS_BY_ID.get(id);
+    }
+
+    /**
+     * Adds up times of all sections measured by all threads so far, without allocating unless the array is too small
+     *
+     * @return array with totals, indexed by section ids
+     */
+    public static long[] section_times(long[] into)
+    {
+        int size;
+        synchronized (CarpetProfiler.class)
+        {
+            size = SECTIONS_BY_ID.size();
+        }
+        long[] times = into.length < size ? new long[size] : into;
+        Arrays.fill(times, 0L);
+        for (ThreadTimes threadTimes : ALL_THREAD_TIMES)
+        {
+            long[] threadTimesArray = threadTimes.times;
+            for (int i = 0; i < Math.min(size, threadTimesArray.length); i++)
+            {
+                times[i] += threadTimesArray[i];
+            }
+        }
+        return times;
+    }
+
+    /**
+     * @return whether the profiler measures ticks, either for a report, or continuously
+     */
+    public static boolean isActive()
+    {
+        return tick_health_requested != 0 || CarpetSettings.continuousProfiling;
+    }
 
+    private static boolean measuring(TYPE type)
+    {
+        if (current_tick_start == 0)
+        {
+            return false;
+        }
+        return type == TYPE.GENERAL ? (test_type == TYPE.GENERAL || CarpetSettings.continuousProfiling) : test_type == TYPE.ENTITY;
+    }
+
+    /**
+     * Sums times and counts of all sections measured by all threads so far
+     */
+    private static long[][] totals()
+    {
+        int size = sections().size();
+        long[] times = new long[size];
+        long[] counts = new long[size];
+        for (ThreadTimes threadTimes : ALL_THREAD_TIMES)
+        {
+            long[] threadTimesArray = threadTimes.times;
+            long[] threadCounts = threadTimes.counts;
+            for (int i = 0; i < Math.min(size, Math.min(threadTimesArray.length, threadCounts.length)); i++)
+            {
+                times[i] += threadTimesArray[i];
+                counts[i] += threadCounts[i];
+            }
+        }
+        return new long[][]{times, counts};
+    }
+
+    private static void start_report(CommandSourceStack source, int ticks, TYPE type)
+    {
+        long[][] totals = totals();
+        baseline_times = totals[0];
+        baseline_counts = totals[1];
+        test_type = type;
         tick_health_elapsed = ticks;
         tick_health_requested = ticks;
         current_tick_start = 0L;
         currentRequester = source;
     }
 
+    public static void prepare_tick_report(CommandSourceStack source, int ticks)
+    {
+        if (CarpetSettings.continuousProfiling)
+        {
+            // already measured, so reporting ticks since the last report right away
+            long[][] totals = totals();
+            long ticksMeasured = totals[1][TICK] - (baseline_counts.length > TICK ? baseline_counts[TICK] : 0L);
+            if (ticksMeasured > 0)
+            {
+                currentRequester = source;
+                finalize_tick_report_for_time(source.getServer(), totals, (int) ticksMeasured);
+                baseline_times = totals[0];
+                baseline_counts = totals[1];
+                currentRequester = null;
+                return;
+            }
+        }
+        //maybe add so it only spams the sending player, but honestly - all may want to see it
+        start_report(source, ticks, TYPE.GENERAL);
+    }
+
     public static void prepare_entity_report(CommandSourceStack source, int ticks)
     {
         //maybe add so it only spams the sending player, but honestly - all may want to see it
-        SECTION_STATS.clear();
-        ENTITY_COUNT.clear();
-        ENTITY_TIMES.clear();
-        test_type = TYPE.ENTITY;
-        tick_health_elapsed = ticks;
-        tick_health_requested = ticks;
-        current_tick_start = 0L;
-        currentRequester = source;
+        start_report(source, ticks, TYPE.ENTITY);
     }
 
-    public static ProfilerToken start_section(Level world, String name, TYPE type)
+    public static int start_section(@Nullable Level world, String name, TYPE type)
     {
-        if (tick_health_requested == 0L || test_type != TYPE.GENERAL || current_tick_start == 0)
-            return null;
-        return new ProfilerToken(type, name, world);
+        if (!measuring(TYPE.GENERAL))
+            return -1;
+        return THREAD_TIMES.get().push(levelSections(world).id(name));
     }
 
-    public static ProfilerToken start_entity_section(Level world, Entity e, TYPE type)
+    public static int start_entity_section(Level world, Entity e, TYPE type)
     {
-        if (tick_health_requested == 0L || test_type != TYPE.ENTITY || current_tick_start == 0)
-            return null;
-        return new ProfilerToken(type, e.getType(), world);
+        if (!measuring(TYPE.ENTITY))
+            return -1;
+        return THREAD_TIMES.get().push(levelSections(world).id(e.getType()));
     }
 
-    public static ProfilerToken start_block_entity_section(Level world, BlockEntity be, TYPE type)
+    public static int start_block_entity_section(Level world, BlockEntity be, TYPE type)
     {
-        if (tick_health_requested == 0L || test_type != TYPE.ENTITY || current_tick_start == 0)
-            return null;
-        return new ProfilerToken(type, be.getType(), world);
+        if (!measuring(TYPE.ENTITY))
+            return -1;
+        return THREAD_TIMES.get().push(levelSections(world).id(be.getType()));
     }
 
-    public static void end_current_section(ProfilerToken tok)
+    public static void end_current_section(int token)
     {
-        if (tick_health_requested == 0L || test_type != TYPE.GENERAL || current_tick_start == 0 || tok == null)
+        if (token < 0 || !measuring(TYPE.GENERAL))
             return;
-        long end_time = System.nanoTime();
-        if (tok.type == TYPE.GENERAL)
-        {
-            Level world = tok.world;
-            String current_section = (world == null) ?
-                    (String) tok.section :
-                    String.format("%s.%s%s", world.dimension().location(), tok.section, world.isClientSide ? " (Client)" : "");
-            SECTION_STATS.addTo(current_section, end_time - tok.start);
-        }
+        THREAD_TIMES.get().pop(token);
     }
 
-    public static void end_current_entity_section(ProfilerToken tok)
+    public static void end_current_entity_section(int token)
     {
-        if (tick_health_requested == 0L || test_type != TYPE.ENTITY || current_tick_start == 0 || tok == null)
+        if (token < 0 || !measuring(TYPE.ENTITY))
             return;
-        long end_time = System.nanoTime();
-        Pair<Level,Object> section = Pair.of(tok.world, tok.section);
-        ENTITY_TIMES.addTo(section, end_time - tok.start);
-        ENTITY_COUNT.addTo(section, 1);
+        THREAD_TIMES.get().pop(token);
     }
 
     public static void start_tick_profiling()
     {
+        // whatever didn't end in the previous tick won't end anymore
+        THREAD_TIMES.get().depth = 0;
         current_tick_start = System.nanoTime();
     }
 
@@ -164,7 +383,11 @@ public class CarpetProfiler
     {
         if (current_tick_start == 0L)
             return;
-        SECTION_STATS.addTo("tick", System.nanoTime() - current_tick_start);
+        THREAD_TIMES.get().add(TICK, System.nanoTime() - current_tick_start);
+        if (CarpetSettings.continuousProfiling)
+            TickTelemetry.record(server.getTickCount());
+        if (tick_health_requested == 0)
+            return;
         tick_health_elapsed--;
         if (tick_health_elapsed <= 0)
         {
@@ -174,32 +397,57 @@ public class CarpetProfiler
 
     public static void finalize_tick_report(MinecraftServer server)
     {
+        long[][] totals = totals();
         if (test_type == TYPE.GENERAL)
-            finalize_tick_report_for_time(server);
+            finalize_tick_report_for_time(server, totals, tick_health_requested);
         if (test_type == TYPE.ENTITY)
-            finalize_tick_report_for_entities(server);
+            finalize_tick_report_for_entities(server, totals);
+        // next continuous report starts from here
+        baseline_times = totals[0];
+        baseline_counts = totals[1];
         cleanup_tick_report();
     }
 
     public static void cleanup_tick_report()
     {
-        SECTION_STATS.clear();
-        ENTITY_TIMES.clear();
-        ENTITY_COUNT.clear();
         test_type = TYPE.NONE;
         tick_health_elapsed = 0;
         tick_health_requested = 0;
-        current_tick_start = 0L;
+        if (!CarpetSettings.continuousProfiling)
+            current_tick_start = 0L;
         currentRequester = null;
     }
 
-    public static void finalize_tick_report_for_time(MinecraftServer server)
+    /**
+     * @return totals of sections measured since the report started, by section
+     */
+    private static Object2LongOpenHashMap<Section> since_baseline(long[] totals, long[] baseline)
+    {
+        Object2LongOpenHashMap<Section> result = new Object2LongOpenHashMap<>();
+        List<Section> sections = sections();
+        for (int i = 0; i < Math.min(totals.length, sections.size()); i++)
+        {
+            long value = totals[i] - (i < baseline.length ? baseline[i] : 0L);
+            if (value != 0)
+            {
+                result.put(sections.get(i), value);
+            }
+        }
+        return result;
+    }
+
+    public static void finalize_tick_report_for_time(MinecraftServer server, long[][] totals, int ticks)
     {
         //print stats
         if (currentRequester == null)
             return;
+        Object2LongOpenHashMap<String> SECTION_STATS = new Object2LongOpenHashMap<>();
+        since_baseline(totals[0], baseline_times).forEach((section, time) -> {
+            if (section.section() instanceof String)
+                SECTION_STATS.addTo(section.key(), time);
+        });
         long total_tick_time = SECTION_STATS.getLong("tick");
-        double divider = 1.0D / tick_health_requested / 1000000;
+        double divider = 1.0D / ticks / 1000000;
         Messenger.m(currentRequester, "w ");
         Messenger.m(currentRequester, "wb Average tick time: ", String.format("yb %.3fms", divider * total_tick_time));
         long accumulated = 0L;
@@ -273,45 +521,47 @@ public class CarpetProfiler
         Messenger.m(currentRequester, String.format("gi The Rest, whatever that might be: %.3fms", divider * rest));
     }
 
-    private static String sectionName(Pair<Level,Object> section)
+    private static String sectionName(Section section)
     {
         ResourceLocation id;
-        final RegistryAccess regs = section.getKey().registryAccess();
-        if (section.getValue() instanceof EntityType)
+        if (section.section() instanceof EntityType<?> entityType)
         {
-            id = regs.registryOrThrow(Registries.ENTITY_TYPE).getKey((EntityType<?>) section.getValue());
+            id = BuiltInRegistries.ENTITY_TYPE.getKey(entityType);
         }
         else
         {
-            id = regs.registryOrThrow(Registries.BLOCK_ENTITY_TYPE).getKey((BlockEntityType<?>) section.getValue());
+            id = BuiltInRegistries.BLOCK_ENTITY_TYPE.getKey((BlockEntityType<?>) section.section());
         }
         String name = "minecraft".equals(id.getNamespace())?id.getPath():id.toString();
-        if (section.getKey().isClientSide)
+        if (section.client())
         {
             name += " (client)";
         }
-        ResourceLocation dimkey = section.getKey().dimension().location();
+        ResourceLocation dimkey = section.dimension().location();
         String dim = "minecraft".equals(dimkey.getNamespace())?dimkey.getPath():dimkey.toString();
         return name+" in "+dim;
     }
 
-    public static void finalize_tick_report_for_entities(MinecraftServer server)
+    public static void finalize_tick_report_for_entities(MinecraftServer server, long[][] totals)
     {
         if (currentRequester == null)
             return;
-        long total_tick_time = SECTION_STATS.getLong("tick");
+        Object2LongOpenHashMap<Section> ENTITY_TIMES = since_baseline(totals[0], baseline_times);
+        Object2LongOpenHashMap<Section> ENTITY_COUNT = since_baseline(totals[1], baseline_counts);
+        long total_tick_time = ENTITY_TIMES.getLong(sections().get(TICK));
+        ENTITY_TIMES.keySet().removeIf(section -> section.section() instanceof String);
+        ENTITY_COUNT.keySet().removeIf(section -> section.section() instanceof String);
         double divider = 1.0D / tick_health_requested / 1000000;
         double divider_1 = 1.0D / (tick_health_requested - 1) / 1000000;
         Messenger.m(currentRequester, "w ");
         Messenger.m(currentRequester, "wb Average tick time: ", String.format("yb %.3fms", divider * total_tick_time));
-        SECTION_STATS.removeLong("tick");
         Messenger.m(currentRequester, "wb Top 10 counts:");
         int total = 0;
-        for (Object2LongMap.Entry<Pair<Level, Object>> sectionEntry : sortedByValue(ENTITY_COUNT))
+        for (Object2LongMap.Entry<Section> sectionEntry : sortedByValue(ENTITY_COUNT))
         {
             if (++total > 10) break;
-            Pair<Level,Object> section = sectionEntry.getKey();
-            boolean cli = section.getKey().isClientSide;
+            Section section = sectionEntry.getKey();
+            boolean cli = section.client();
             Messenger.m(currentRequester, String.format(
                     "%s - %s: ", cli?"gi":"w",
                     sectionName(section)),
@@ -321,11 +571,11 @@ public class CarpetProfiler
         }
         Messenger.m(currentRequester, "wb Top 10 CPU hogs:");
         total = 0;
-        for (Object2LongMap.Entry<Pair<Level, Object>> sectionEntry : sortedByValue(ENTITY_TIMES))
+        for (Object2LongMap.Entry<Section> sectionEntry : sortedByValue(ENTITY_TIMES))
         {
             if (++total > 10) break;
-            Pair<Level,Object> section = sectionEntry.getKey();
-            boolean cli = section.getKey().isClientSide;
+            Section section = sectionEntry.getKey();
+            boolean cli = section.client();
             Messenger.m(currentRequester, String.format(
                     "%s - %s: ", cli?"gi":"w",
                     sectionName(section)),
@@ -2,6 +2,13 @@ package carpet.utils;
 
 import java.util.ArrayList;
 import java.util.List;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.bytes.ByteList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.tags.FluidTags;
@@ -14,14 +21,32 @@ import net.minecraft.world.entity.SpawnPlacements;
 import net.minecraft.world.entity.ambient.AmbientCreature;
 import net.minecraft.world.entity.animal.WaterAnimal;
 import net.minecraft.world.entity.monster.Enemy;
+import net.minecraft.world.level.BlockGetter;
+import net.minecraft.world.level.EmptyBlockGetter;
 import net.minecraft.world.level.NaturalSpawner;
 import net.minecraft.world.level.biome.MobSpawnSettings;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
 
+/**
+ * Counts spawning spaces around a position. Columns of blocks are scanned in parallel, straight from chunk sections,
+ * and only spots found that way go through spawn checks that need the world.
+ */
 public class PerimeterDiagnostics
 {
+    private static final int RADIUS = 128;
+    private static final int DIAMETER = 2 * RADIUS + 1;
+    private static final int CHUNKS = (DIAMETER >> 4) + 2;
+
+    private static final byte NONE = 0;
+    private static final byte LIQUID = 1;
+    private static final byte GROUND = 2;
+    // depends on the world, spawning spot needs to be checked on the server thread
+    private static final byte UNCERTAIN = 3;
+
     public static class Result
     {
         public int liquid;
@@ -47,17 +72,10 @@ public class PerimeterDiagnostics
 
     public static Result countSpots(ServerLevel worldserver, BlockPos epos, Mob el)
     {
-        BlockPos pos;
-        //List<BlockPos> samples = new ArrayList<BlockPos>();
-        //if (el != null) CarpetSettings.LOG.error(String.format("Got %s to check",el.toString()));
-        int eY = epos.getY();
         int eX = epos.getX();
         int eZ = epos.getZ();
         Result result = new Result();
 
-        //int ground_spawns = 0;
-        //int liquid_spawns = 0;
-        //int specific_spawns = 0;
         boolean add_water = false;
         boolean add_ground = false;
         MobCategory ctype = null;
@@ -87,73 +105,167 @@ public class PerimeterDiagnostics
         PerimeterDiagnostics diagnostic = new PerimeterDiagnostics(worldserver,ctype,el);
         EntityType<?> type = EntityType.ZOMBIE;
         if (el != null) type = el.getType();
-        int minY = worldserver.getMinBuildHeight();
-        int maxY = worldserver.getMaxBuildHeight();
-        for (int x = -128; x <= 128; ++x)
+
+        // chunks are fetched here, so columns can be scanned on other threads without touching the world
+        LevelChunk[] chunks = new LevelChunk[CHUNKS * CHUNKS];
+        IntList columns = new IntArrayList();
+        for (int x = -RADIUS; x <= RADIUS; ++x)
         {
-            for (int z = -128; z <= 128; ++z)
+            for (int z = -RADIUS; z <= RADIUS; ++z)
             {
-                if (x*x + z*z > 128*128) // cut out a cyllinder first
+                if (x*x + z*z > RADIUS*RADIUS) // cut out a cyllinder first
                 {
                     continue;
                 }
-                for (int y= minY; y < maxY; ++y)
+                int chunkIndex = chunkIndex(eX, eZ, eX + x, eZ + z);
+                if (chunks[chunkIndex] == null)
+                {
+                    chunks[chunkIndex] = worldserver.getChunk((eX + x) >> 4, (eZ + z) >> 4);
+                }
+                columns.add((x + RADIUS) * DIAMETER + z + RADIUS);
+            }
+        }
+
+        EntityType<?> spawnType = type;
+        Scan scan = columns.intParallelStream().collect(
+                Scan::new,
+                (s, column) -> s.column(worldserver, chunks, epos, column / DIAMETER - RADIUS, column % DIAMETER - RADIUS, spawnType),
+                Scan::merge
+        );
+
+        // checks that need the world are only done for spots found by the scan
+        result.liquid = scan.liquid;
+        result.ground = scan.ground;
+        for (int i = 0; i < scan.spots.size(); i++)
+        {
+            BlockPos pos = BlockPos.of(scan.spots.getLong(i));
+            byte spot = scan.kinds.getByte(i);
+            if (spot == UNCERTAIN)
+            {
+                spot = spot(worldserver, pos, worldserver.getBlockState(pos), worldserver.getBlockState(pos.below()), worldserver.getBlockState(pos.above()), type);
+                if (spot == LIQUID)
+                {
+                    result.liquid++;
+                }
+                else if (spot == GROUND)
+                {
+                    result.ground++;
+                }
+            }
+            if (((spot == LIQUID && add_water) || (spot == GROUND && add_ground)) && diagnostic.check_entity_spawn(pos))
+            {
+                result.specific++;
+                if (result.samples.size() < 10)
+                {
+                    result.samples.add(pos);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int chunkIndex(int eX, int eZ, int x, int z)
+    {
+        return ((x >> 4) - ((eX - RADIUS) >> 4)) * CHUNKS + (z >> 4) - ((eZ - RADIUS) >> 4);
+    }
+
+    /**
+     * @param level world, or an empty one if the states don't depend on their surroundings
+     * @return what kind of spawning spot the position is, based on states of the block, and blocks above and below
+     */
+    private static byte spot(BlockGetter level, BlockPos pos, BlockState iblockstate, BlockState iblockstate_down, BlockState iblockstate_up, EntityType<?> type)
+    {
+        if ( iblockstate.getFluidState().is(FluidTags.WATER) && !iblockstate_up.isRedstoneConductor(level, pos)) // isSimpleFUllBLock
+        {
+            return LIQUID;
+        }
+        if (iblockstate_down.isRedstoneConductor(level, pos)) // isSimpleFUllBLock
+        {
+            Block block = iblockstate_down.getBlock();
+            boolean flag = block != Blocks.BEDROCK && block != Blocks.BARRIER;
+            if( flag && NaturalSpawner.isValidEmptySpawnBlock(level, pos, iblockstate, iblockstate.getFluidState(), type) && NaturalSpawner.isValidEmptySpawnBlock(level, pos.above(), iblockstate_up, iblockstate_up.getFluidState(), type))
+            {
+                return GROUND;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Spawning spots found in a set of columns, in the order they were scanned
+     */
+    private static class Scan
+    {
+        int liquid;
+        int ground;
+        final LongList spots = new LongArrayList();
+        final ByteList kinds = new ByteArrayList();
+
+        void column(ServerLevel level, LevelChunk[] chunks, BlockPos center, int x, int z, EntityType<?> type)
+        {
+            int eY = center.getY();
+            int minY = Math.max(level.getMinBuildHeight(), eY - RADIUS);
+            int maxY = Math.min(level.getMaxBuildHeight() - 1, eY + RADIUS);
+            int bx = center.getX() + x;
+            int bz = center.getZ() + z;
+            LevelChunk chunk = chunks[chunkIndex(center.getX(), center.getZ(), bx, bz)];
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+            // states of the block, and blocks below and above are passed along the column
+            BlockState down = state(level, chunk, bx, minY - 1, bz);
+            BlockState state = state(level, chunk, bx, minY, bz);
+            for (int y = minY; y <= maxY; ++y)
+            {
+                BlockState up = state(level, chunk, bx, y + 1, bz);
+                int distsq = (x)*(x)+(eY-y)*(eY-y)+(z)*(z);
+                if (distsq <= RADIUS*RADIUS && distsq >= 24*24)
                 {
-                    if ((Math.abs(y-eY)>128) )
+                    pos.set(bx, y, bz);
+                    byte spot;
+                    if (state.getBlock().hasDynamicShape() || down.getBlock().hasDynamicShape() || up.getBlock().hasDynamicShape())
+                    {
+                        // shape depends on the world, leaving it for the server thread
+                        spot = UNCERTAIN;
+                    }
+                    else
                     {
-                        continue;
+                        spot = spot(EmptyBlockGetter.INSTANCE, pos, state, down, up, type);
                     }
-                    int distsq = (x)*(x)+(eY-y)*(eY-y)+(z)*(z);
-                    if (distsq > 128*128 || distsq < 24*24)
+                    if (spot == LIQUID)
                     {
-                        continue;
+                        liquid++;
                     }
-                    pos = new BlockPos(eX+x, y, eZ+z);
-
-                    BlockState iblockstate = worldserver.getBlockState(pos);
-                    BlockState iblockstate_down = worldserver.getBlockState(pos.below());
-                    BlockState iblockstate_up = worldserver.getBlockState(pos.above());
-
-                    if ( iblockstate.getFluidState().is(FluidTags.WATER) && !iblockstate_up.isRedstoneConductor(worldserver, pos)) // isSimpleFUllBLock
+                    else if (spot == GROUND)
                     {
-                        result.liquid++;
-                        if (add_water && diagnostic.check_entity_spawn(pos))
-                        {
-                            result.specific++;
-                            if (result.samples.size() < 10)
-                            {
-                                result.samples.add(pos);
-                            }
-                        }
+                        ground++;
                     }
-                    else
+                    if (spot != NONE)
                     {
-                        if (iblockstate_down.isRedstoneConductor(worldserver, pos)) // isSimpleFUllBLock
-                        {
-                            Block block = iblockstate_down.getBlock();
-                            boolean flag = block != Blocks.BEDROCK && block != Blocks.BARRIER;
-                            if( flag && NaturalSpawner.isValidEmptySpawnBlock(worldserver, pos, iblockstate, iblockstate.getFluidState(), type) && NaturalSpawner.isValidEmptySpawnBlock(worldserver, pos.above(), iblockstate_up, iblockstate_up.getFluidState(), type))
-                            {
-                                result.ground ++;
-                                if (add_ground && diagnostic.check_entity_spawn(pos))
-                                {
-                                    result.specific++;
-                                    if (result.samples.size() < 10)
-                                    {
-                                        result.samples.add(pos);
-                                    }
-                                }
-                            }
-                        }
+                        spots.add(pos.asLong());
+                        kinds.add(spot);
                     }
                 }
+                down = state;
+                state = up;
             }
         }
-        //ashMap<String,Integer> result= new HashMap<>();
-        //result.put("Potential in-water spawning spaces", liquid_spawns);
-        //result.put("Potential on-ground spawning spaces", ground_spawns);
-        //if (el != null) result.put(String.format("%s spawning spaces",el.getDisplayName().getUnformattedText()),specific_spawns);
-        return result;
+
+        private static BlockState state(ServerLevel level, LevelChunk chunk, int x, int y, int z)
+        {
+            if (level.isOutsideBuildHeight(y))
+            {
+                return Blocks.VOID_AIR.defaultBlockState();
+            }
+            LevelChunkSection section = chunk.getSection(chunk.getSectionIndex(y));
+            return section.hasOnlyAir() ? Blocks.AIR.defaultBlockState() : section.getBlockState(x & 15, y & 15, z & 15);
+        }
+
+        void merge(Scan other)
+        {
+            liquid += other.liquid;
+            ground += other.ground;
+            spots.addAll(other.spots);
+            kinds.addAll(other.kinds);
+        }
     }
 
 
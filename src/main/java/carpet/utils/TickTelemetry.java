@@ -0,0 +1,308 @@
+package carpet.utils;
+
+import carpet.CarpetSettings;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.storage.LevelResource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rolling record of tick times of profiler sections, kept while {@link CarpetSettings#continuousProfiling} is on.
+ * Times of each section in each tick go into histograms with buckets growing exponentially, precise to 1/8 of
+ * the value, so percentiles over the last few minutes are available at any time, without keeping every sample.
+ * The window is split into segments, and the oldest segment is dropped as a new one starts. Times of the most
+ * recent ticks are also kept as they are, so they can be exported to a file to look into lag spikes after the fact.
+ */
+public class TickTelemetry
+{
+    private static final int SEGMENT_TICKS = 400;
+    private static final int SEGMENTS = 15;
+    public static final int WINDOW_TICKS = SEGMENT_TICKS * SEGMENTS;
+    public static final int RECENT_TICKS = 1200;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * Tick times of a section over the window, in nanoseconds
+     */
+    public record Summary(long ticks, long p50, long p99, long p999, long max)
+    {
+    }
+
+    // histograms and maximum times of sections by segment, allocated once a section shows up
+    private static final int[][][] histograms = new int[SEGMENTS][][];
+    private static final long[][] maxima = new long[SEGMENTS][];
+    private static int segment = 0;
+    private static int segmentTicks = 0;
+
+    private static final long[][] recent = new long[RECENT_TICKS][];
+    private static final int[] recentTickNumbers = new int[RECENT_TICKS];
+    private static int recentCount = 0;
+    private static int recentIndex = 0;
+
+    private static long[] previous = new long[0];
+    private static long[] current = new long[0];
+    private static boolean[] seen = new boolean[0];
+    private static int lastTick = Integer.MIN_VALUE;
+
+    /**
+     * Records times sections took in the tick that just ended
+     */
+    public static synchronized void record(int tickNumber)
+    {
+        current = CarpetProfiler.section_times(current);
+        int size = current.length;
+        if (previous.length < size)
+        {
+            previous = Arrays.copyOf(previous, size);
+            seen = Arrays.copyOf(seen, size);
+        }
+        boolean following = tickNumber == lastTick + 1;
+        lastTick = tickNumber;
+        if (!following)
+        {
+            // first tick after being off, totals so far include time from long ago
+            swap();
+            return;
+        }
+        if (segmentTicks == SEGMENT_TICKS)
+        {
+            segment = (segment + 1) % SEGMENTS;
+            segmentTicks = 0;
+            clear(segment);
+        }
+        segmentTicks++;
+        long[] tickTimes = recent[recentIndex];
+        if (tickTimes == null || tickTimes.length < size)
+        {
+            tickTimes = recent[recentIndex] = new long[size];
+        }
+        for (int id = 0; id < size; id++)
+        {
+            long time = current[id] - previous[id];
+            tickTimes[id] = time;
+            if (time == 0 && !seen[id])
+            {
+                continue;
+            }
+            if (!seen[id])
+            {
+                // only named sections have their time taken every tick, entity sections come and go with reports
+                if (!(CarpetProfiler.section(id).section() instanceof String))
+                {
+                    continue;
+                }
+                seen[id] = true;
+            }
+            add(id, time);
+        }
+        recentTickNumbers[recentIndex] = tickNumber;
+        recentIndex = (recentIndex + 1) % RECENT_TICKS;
+        recentCount = Math.min(recentCount + 1, RECENT_TICKS);
+        swap();
+    }
+
+    private static void swap()
+    {
+        long[] swap = previous;
+        previous = current;
+        current = swap;
+    }
+
+    private static void add(int id, long time)
+    {
+        int[][] segmentHistograms = histograms[segment];
+        if (segmentHistograms == null || segmentHistograms.length <= id)
+        {
+            int size = Math.max(id + 1, 64);
+            histograms[segment] = segmentHistograms = segmentHistograms == null ? new int[size][] : Arrays.copyOf(segmentHistograms, size);
+            maxima[segment] = maxima[segment] == null ? new long[size] : Arrays.copyOf(maxima[segment], size);
+        }
+        if (segmentHistograms[id] == null)
+        {
+            segmentHistograms[id] = new int[BUCKETS];
+        }
+        segmentHistograms[id][bucket(time)]++;
+        if (time > maxima[segment][id])
+        {
+            maxima[segment][id] = time;
+        }
+    }
+
+    private static void clear(int segment)
+    {
+        if (histograms[segment] == null)
+        {
+            return;
+        }
+        for (int[] histogram : histograms[segment])
+        {
+            if (histogram != null)
+            {
+                Arrays.fill(histogram, 0);
+            }
+        }
+        Arrays.fill(maxima[segment], 0L);
+    }
+
+    private static int bucket(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) Math.max(value, 0);
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return largest value falling into the bucket
+     */
+    private static long bucketTop(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * @return summaries of all sections recorded within the window, by section name, slowest first
+     */
+    public static synchronized Map<String, Summary> summaries()
+    {
+        List<Map.Entry<String, Summary>> summaries = new ArrayList<>();
+        int[] merged = new int[BUCKETS];
+        for (int id = 0; id < seen.length; id++)
+        {
+            if (!seen[id])
+            {
+                continue;
+            }
+            Arrays.fill(merged, 0);
+            long count = 0;
+            long max = 0;
+            for (int s = 0; s < SEGMENTS; s++)
+            {
+                int[][] segmentHistograms = histograms[s];
+                if (segmentHistograms == null || segmentHistograms.length <= id || segmentHistograms[id] == null)
+                {
+                    continue;
+                }
+                int[] histogram = segmentHistograms[id];
+                for (int b = 0; b < BUCKETS; b++)
+                {
+                    merged[b] += histogram[b];
+                    count += histogram[b];
+                }
+                max = Math.max(max, maxima[s][id]);
+            }
+            if (count == 0)
+            {
+                continue;
+            }
+            summaries.add(Map.entry(CarpetProfiler.section(id).key(), new Summary(
+                    count, percentile(merged, count, 0.5, max), percentile(merged, count, 0.99, max), percentile(merged, count, 0.999, max), max
+            )));
+        }
+        summaries.sort(Map.Entry.<String, Summary>comparingByValue((a, b) -> Long.compare(b.p99(), a.p99())));
+        Map<String, Summary> result = new LinkedHashMap<>();
+        summaries.forEach(e -> result.put(e.getKey(), e.getValue()));
+        return result;
+    }
+
+    private static long percentile(int[] histogram, long count, double fraction, long max)
+    {
+        long rank = (long) Math.ceil(fraction * count);
+        long accumulated = 0;
+        for (int b = 0; b < BUCKETS; b++)
+        {
+            accumulated += histogram[b];
+            if (accumulated >= rank)
+            {
+                return Math.min(bucketTop(b), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes percentiles over the window, and times of sections in each of the recent ticks, to a CSV file
+     * in the world folder
+     *
+     * @return path of the written file
+     */
+    public static Path export(MinecraftServer server) throws IOException
+    {
+        Map<String, Summary> summaries = summaries();
+        List<String> names = new ArrayList<>();
+        List<long[]> ticks = new ArrayList<>();
+        int[] tickNumbers;
+        synchronized (TickTelemetry.class)
+        {
+            List<Integer> ids = new ArrayList<>();
+            for (int id = 0; id < seen.length; id++)
+            {
+                if (seen[id])
+                {
+                    ids.add(id);
+                    names.add(CarpetProfiler.section(id).key());
+                }
+            }
+            tickNumbers = new int[recentCount];
+            for (int i = 0; i < recentCount; i++)
+            {
+                int index = Math.floorMod(recentIndex - recentCount + i, RECENT_TICKS);
+                tickNumbers[i] = recentTickNumbers[index];
+                long[] times = new long[ids.size()];
+                for (int j = 0; j < ids.size(); j++)
+                {
+                    int id = ids.get(j);
+                    times[j] = id < recent[index].length ? recent[index][id] : 0L;
+                }
+                ticks.add(times);
+            }
+        }
+        Path folder = server.getWorldPath(LevelResource.ROOT).resolve("telemetry");
+        Files.createDirectories(folder);
+        Path file = folder.resolve("ticks-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss")) + ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file))
+        {
+            writer.write("# section,ticks,p50 ms,p99 ms,p99.9 ms,max ms\n");
+            for (Map.Entry<String, Summary> entry : summaries.entrySet())
+            {
+                Summary summary = entry.getValue();
+                writer.write(String.format(Locale.ROOT, "# %s,%d,%.3f,%.3f,%.3f,%.3f\n", entry.getKey(), summary.ticks(),
+                        summary.p50() / 1e6, summary.p99() / 1e6, summary.p999() / 1e6, summary.max() / 1e6));
+            }
+            writer.write("tick," + String.join(",", names) + "\n");
+            for (int i = 0; i < ticks.size(); i++)
+            {
+                StringBuilder line = new StringBuilder().append(tickNumbers[i]);
+                for (long time : ticks.get(i))
+                {
+                    line.append(',').append(String.format(Locale.ROOT, "%.3f", time / 1e6));
+                }
+                writer.write(line.append('\n').toString());
+            }
+        }
+        return file;
+    }
+}